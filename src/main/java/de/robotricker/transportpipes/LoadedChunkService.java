@@ -0,0 +1,62 @@
+package de.robotricker.transportpipes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+
+/**
+ * Keeps a {@link LoadedChunkSet} for every world. Ducts and containers check it instead of calling into the world from
+ * the TransportPipes thread.
+ */
+public class LoadedChunkService {
+
+    /**
+     * THREAD-SAFE
+     */
+    private final Map<World, LoadedChunkSet> loadedChunks;
+
+    public LoadedChunkService() {
+        this.loadedChunks = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * THREAD-SAFE
+     */
+    public LoadedChunkSet getLoadedChunks(World world) {
+        return loadedChunks.computeIfAbsent(world, w -> new LoadedChunkSet());
+    }
+
+    /**
+     * called inside the thread which loaded the chunk
+     */
+    public void notifyChunkLoaded(Chunk chunk) {
+        LoadedChunkSet chunkSet = getLoadedChunks(chunk.getWorld());
+        // chunk loads of different regions can happen at the same time
+        synchronized (chunkSet) {
+            chunkSet.add(chunk.getX(), chunk.getZ());
+        }
+    }
+
+    /**
+     * called inside the thread which unloads the chunk
+     */
+    public void notifyChunkUnloaded(Chunk chunk) {
+        LoadedChunkSet chunkSet = getLoadedChunks(chunk.getWorld());
+        synchronized (chunkSet) {
+            chunkSet.remove(chunk.getX(), chunk.getZ());
+        }
+    }
+
+    public void notifyWorldUnloaded(World world) {
+        LoadedChunkSet chunkSet = loadedChunks.remove(world);
+        if (chunkSet != null) {
+            // ducts and containers of the world could still hold a reference to it
+            synchronized (chunkSet) {
+                chunkSet.clear();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package de.robotricker.transportpipes;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The loaded chunks of one world. It is kept up to date by the chunk load and unload events, so the TransportPipes
+ * thread can check whether a chunk is loaded without asking the world.
+ */
+public class LoadedChunkSet {
+
+    /**
+     * THREAD-SAFE
+     */
+    private final Set<Long> chunkKeys;
+    /**
+     * increased on every change, so cached results can be invalidated cheaply
+     */
+    private volatile long version;
+
+    LoadedChunkSet() {
+        this.chunkKeys = ConcurrentHashMap.newKeySet();
+        this.version = 0;
+    }
+
+    public static long getChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * THREAD-SAFE
+     */
+    public boolean isLoaded(int chunkX, int chunkZ) {
+        return chunkKeys.contains(getChunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * THREAD-SAFE
+     */
+    public boolean isLoaded(long chunkKey) {
+        return chunkKeys.contains(chunkKey);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    void add(int chunkX, int chunkZ) {
+        if (chunkKeys.add(getChunkKey(chunkX, chunkZ))) {
+            version++;
+        }
+    }
+
+    void remove(int chunkX, int chunkZ) {
+        if (chunkKeys.remove(getChunkKey(chunkX, chunkZ))) {
+            version++;
+        }
+    }
+
+    void clear() {
+        chunkKeys.clear();
+        version++;
+    }
+
+}
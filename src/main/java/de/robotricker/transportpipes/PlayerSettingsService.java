@@ -1,7 +1,7 @@
 package de.robotricker.transportpipes;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
@@ -17,17 +17,17 @@ public class PlayerSettingsService {
     @Inject
     private GeneralConf generalConf;
 
+    /**
+     * THREAD-SAFE
+     */
     private final Map<Player, PlayerSettingsConf> cachedSettingsConfs;
 
     public PlayerSettingsService() {
-        this.cachedSettingsConfs = new HashMap<>();
+        this.cachedSettingsConfs = new ConcurrentHashMap<>();
     }
 
     public PlayerSettingsConf getOrCreateSettingsConf(Player p) {
-        if (!cachedSettingsConfs.containsKey(p)) {
-            cachedSettingsConfs.put(p, new PlayerSettingsConf(transportPipes, generalConf, p));
-        }
-        return cachedSettingsConfs.get(p);
+        return cachedSettingsConfs.computeIfAbsent(p, player -> new PlayerSettingsConf(transportPipes, generalConf, player));
     }
 
 }
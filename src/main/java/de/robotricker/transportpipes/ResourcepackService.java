@@ -81,7 +81,7 @@ public class ResourcepackService implements Listener {
                     waitingForAuthmeLogin.add(event.getPlayer());
                 }
                 else {
-                    transportPipes.runTaskSync(() -> loadResourcepackForPlayer(event.getPlayer()));
+                    transportPipes.runTaskSync(event.getPlayer(), () -> loadResourcepackForPlayer(event.getPlayer()));
                 }
             }
         }
@@ -1,11 +1,9 @@
 package de.robotricker.transportpipes;
 
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.inject.Inject;
 
@@ -13,109 +11,155 @@ import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.java.JavaPlugin;
 
+import de.robotricker.transportpipes.config.GeneralConf;
 import de.robotricker.transportpipes.duct.Duct;
 import de.robotricker.transportpipes.duct.manager.GlobalDuctManager;
 import de.robotricker.transportpipes.location.BlockLocation;
 import de.robotricker.transportpipes.log.LoggerService;
+import de.robotricker.transportpipes.scheduler.ExecutionService;
 import de.robotricker.transportpipes.utils.WorldUtils;
 
 public class ThreadService extends Thread {
 
-    private final Map<Runnable, Long> tasks;
+    private final TickTaskWheel tasks;
 
     private final LoggerService logger;
     private final GlobalDuctManager globalDuctManager;
     private final PlayerSettingsService playerSettingsService;
+    private final GeneralConf generalConf;
+    private final ExecutionService executionService;
 
-    private boolean running = false;
-    private int preferredTPS = 10;
-    private int currentTPS = 0;
+    private volatile boolean running = false;
+    private volatile int preferredTPS = 10;
+    private volatile int currentTPS = 0;
+
+    /**
+     * tick statistics, written by the TransportPipes thread only
+     */
+    private volatile long lastTickNanos = 0;
+    private volatile long averageTickNanos = 0;
+    private volatile long maxTickNanos = 0;
+    private volatile long overrunTicks = 0;
+    private volatile long skippedTicks = 0;
 
     @Inject
-    public ThreadService(JavaPlugin plugin, LoggerService logger, GlobalDuctManager globalDuctManager, PlayerSettingsService playerSettingsService) {
+    public ThreadService(ExecutionService executionService, LoggerService logger, GlobalDuctManager globalDuctManager, PlayerSettingsService playerSettingsService, GeneralConf generalConf) {
         super("TransportPipes-Thread");
         this.logger = logger;
         this.globalDuctManager = globalDuctManager;
         this.playerSettingsService = playerSettingsService;
-        this.tasks = Collections.synchronizedMap(new LinkedHashMap<>());
+        this.generalConf = generalConf;
+        this.executionService = executionService;
+        this.tasks = new TickTaskWheel(logger);
 
-        Bukkit.getScheduler().runTaskTimer(plugin, (Runnable) this::tickDuctSpawnAndDespawn, 20L, 20L);
+        executionService.runGlobalTimer(this::tickDuctSpawnAndDespawn, 20L, 20L);
     }
 
+    /**
+     * Runs the ticks at a fixed rate based on System.nanoTime().
+     * Every tick has a fixed deadline (the previous deadline plus one period), so a slow tick does not shift the following ones.
+     * If the thread falls behind, up to "max_catch_up_ticks" late ticks are run back to back. If it is even further behind,
+     * the missed ticks are skipped (and counted) and the schedule is realigned to the current time.
+     */
     @Override
     public void run() {
         logger.info("Started ThreadService");
         running = true;
 
-        long lastTick = System.currentTimeMillis();
-        long lastSec = lastTick;
+        long tickPeriod = TimeUnit.SECONDS.toNanos(1) / preferredTPS;
+        long nextTick = System.nanoTime();
+        long lastSec = nextTick;
         int tpsCounter = 0;
         while (running) {
-            long currentTick = System.currentTimeMillis();
-            long diff = currentTick - lastTick;
-            if (diff >= 1000f / preferredTPS) {
+            long now = System.nanoTime();
+            if (now - nextTick < 0) {
+                LockSupport.parkNanos(this, nextTick - now);
+                continue;
+            }
 
+            // skip ticks that are too far behind instead of catching up on all of them
+            long behindTicks = (now - nextTick) / tickPeriod;
+            int maxCatchUpTicks = Math.max(generalConf.getMaxCatchUpTicks(), 0);
+            if (behindTicks > maxCatchUpTicks) {
+                skippedTicks += behindTicks - maxCatchUpTicks;
+                nextTick += (behindTicks - maxCatchUpTicks) * tickPeriod;
+            }
+
+            long tickStart = System.nanoTime();
+            try {
                 tick();
+            } catch (Exception e) {
+                // a broken tick must not stop the thread, otherwise no pipe would move anymore
+                logger.error("Exception while ticking the ducts", e);
+            }
+            long tickDuration = System.nanoTime() - tickStart;
+            updateTickStatistics(tickDuration, tickPeriod);
 
-                tpsCounter++;
-                lastTick = currentTick;
-
-                if (currentTick - lastSec >= 1000) {
-                    currentTPS = tpsCounter;
-                    tpsCounter = 0;
-                    lastSec = currentTick;
-                    logger.debug("TPS: " + currentTPS);
-                }
-
-            } else {
-                long waitTime = (long) (1000f / preferredTPS - diff);
-                try {
-                    //noinspection BusyWait
-                    sleep(waitTime);
-                } catch (InterruptedException e) {
-                    logger.error("ThreadService was terminated while sleeping!", e);
-                }
+            tpsCounter++;
+            nextTick += tickPeriod;
+
+            // the preferred tps may have been changed during the tick
+            long newTickPeriod = TimeUnit.SECONDS.toNanos(1) / preferredTPS;
+            if (newTickPeriod != tickPeriod) {
+                nextTick += newTickPeriod - tickPeriod;
+                tickPeriod = newTickPeriod;
+            }
+
+            long afterTick = System.nanoTime();
+            if (afterTick - lastSec >= TimeUnit.SECONDS.toNanos(1)) {
+                currentTPS = tpsCounter;
+                tpsCounter = 0;
+                lastSec = afterTick;
+                logger.debug("TPS: " + currentTPS + ", avg tick: " + TimeUnit.NANOSECONDS.toMicros(averageTickNanos) + "us, overruns: " + overrunTicks + ", skipped: " + skippedTicks);
             }
         }
         logger.info("Stopped ThreadService");
     }
 
-    public Map<Runnable, Long> getTasks() {
-        return tasks;
+    private void updateTickStatistics(long tickDuration, long tickPeriod) {
+        lastTickNanos = tickDuration;
+        // exponential moving average over roughly the last 20 ticks
+        averageTickNanos = averageTickNanos == 0 ? tickDuration : averageTickNanos + (tickDuration - averageTickNanos) / 20;
+        if (tickDuration > maxTickNanos) {
+            maxTickNanos = tickDuration;
+        }
+        if (tickDuration > tickPeriod) {
+            overrunTicks++;
+        }
+    }
+
+    /**
+     * THREAD-SAFE schedules the given task to run inside this thread after the given amount of ticks
+     */
+    public void scheduleTask(Runnable task, long delay) {
+        tasks.schedule(task, delay);
     }
 
     private void tick() {
-        //schedule tasks
-        Set<Runnable> taskSet = tasks.keySet();
-        synchronized (tasks) {
-            Iterator<Runnable> taskIt = taskSet.iterator();
-            while (taskIt.hasNext()) {
-                Runnable task = taskIt.next();
-                if (tasks.get(task) > 1) {
-                    tasks.put(task, tasks.get(task) - 1);
-                } else {
-                    taskIt.remove();
-                    task.run();
-                }
-            }
-        }
+        //run due tasks
+        tasks.tick();
 
         globalDuctManager.tick();
     }
 
     /**
-     * does the same as tickDuctSpawnAndDespawn(Duct duct) but for all ducts in all worlds
+     * does the same as tickDuctSpawnAndDespawn(Duct duct) but for all ducts in all worlds. The ducts are checked
+     * inside the thread which owns the player.
      */
     @SuppressWarnings("GrazieInspection")
     private void tickDuctSpawnAndDespawn() {
         for (World world : Bukkit.getWorlds()) {
             Map<BlockLocation, Duct> ductMap = globalDuctManager.getDucts(world);
-            if (ductMap != null) {
-                for (Duct duct : ductMap.values()) {
-                    tickDuctSpawnAndDespawn(duct);
-                }
+            if (ductMap == null || ductMap.isEmpty()) {
+                continue;
+            }
+            for (Player worldPlayer : WorldUtils.getPlayerList(world)) {
+                executionService.executeForEntity(worldPlayer, () -> {
+                    for (Duct duct : ductMap.values()) {
+                        tickDuctSpawnAndDespawn(duct, worldPlayer);
+                    }
+                });
             }
         }
     }
@@ -154,9 +198,47 @@ public class ThreadService extends Thread {
     }
 
     public void setPreferredTPS(int preferredTPS) {
+        if (preferredTPS <= 0) {
+            throw new IllegalArgumentException("preferredTPS has to be greater than 0");
+        }
         this.preferredTPS = preferredTPS;
     }
 
+    /**
+     * @return the duration of the last tick in nanoseconds
+     */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    /**
+     * @return the moving average of the tick duration in nanoseconds
+     */
+    public long getAverageTickNanos() {
+        return averageTickNanos;
+    }
+
+    /**
+     * @return the longest tick duration since the start in nanoseconds
+     */
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    /**
+     * @return how many ticks took longer than one tick period since the start
+     */
+    public long getOverrunTicks() {
+        return overrunTicks;
+    }
+
+    /**
+     * @return how many ticks were dropped since the start because the thread was too far behind
+     */
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
     public boolean isRunning() {
         return running;
     }
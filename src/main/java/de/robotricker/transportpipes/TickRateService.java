@@ -0,0 +1,57 @@
+package de.robotricker.transportpipes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.bukkit.World;
+
+import de.robotricker.transportpipes.config.GeneralConf;
+
+/**
+ * Keeps the adaptive {@link WorldTickRate} of every world. Every world is measured against its own budget, so a world
+ * with huge pipe networks only slows down itself and not the pipes inside the other worlds.
+ */
+public class TickRateService {
+
+    private final GeneralConf generalConf;
+
+    /**
+     * THREAD-SAFE
+     */
+    private final Map<World, WorldTickRate> worldTickRates;
+
+    @Inject
+    public TickRateService(GeneralConf generalConf) {
+        this.generalConf = generalConf;
+        this.worldTickRates = new ConcurrentHashMap<>();
+    }
+
+    public WorldTickRate getWorldTickRate(World world) {
+        return worldTickRates.computeIfAbsent(world, w -> new WorldTickRate());
+    }
+
+    public Map<World, WorldTickRate> getWorldTickRates() {
+        return worldTickRates;
+    }
+
+    /**
+     * called by the TransportPipes thread after the given world was ticked
+     */
+    public void endWorldTick(World world) {
+        long budgetNanos = (long) (generalConf.getWorldTickBudgetMillis() * TimeUnit.MILLISECONDS.toNanos(1));
+        // without a budget, worlds are never slowed down
+        int maxDivisor = budgetNanos > 0 ? Math.max(1, generalConf.getMaxWorldTickDivisor()) : 1;
+        getWorldTickRate(world).endTick(budgetNanos, maxDivisor);
+    }
+
+    /**
+     * THREAD-SAFE adds cost which was caused by the given world, e.g. inside the bukkit thread
+     */
+    public void addCostNanos(World world, long nanos) {
+        getWorldTickRate(world).addCostNanos(nanos);
+    }
+
+}
@@ -0,0 +1,97 @@
+package de.robotricker.transportpipes;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import de.robotricker.transportpipes.log.LoggerService;
+
+/**
+ * Hashed timing wheel for the delayed tasks of the TransportPipes thread.
+ * <p>
+ * Scheduling is O(1) and can be done from any thread: new tasks only get appended to a lock-free inbox.
+ * The owning thread moves them into the bucket of their due tick on the next {@link #tick()} and then only visits the
+ * bucket of the current tick, so a tick costs O(due tasks) instead of O(pending tasks).
+ * A Runnable may be scheduled any number of times, every schedule call results in one execution.
+ */
+public class TickTaskWheel {
+
+    /**
+     * has to be a power of two
+     */
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final LoggerService logger;
+
+    /**
+     * THREAD-SAFE contains all the tasks that were scheduled since the last tick
+     */
+    private final ConcurrentLinkedQueue<ScheduledTask> inbox;
+    /**
+     * only accessed by the ticking thread
+     */
+    private final ArrayDeque<ScheduledTask>[] buckets;
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TickTaskWheel(LoggerService logger) {
+        this.logger = logger;
+        this.inbox = new ConcurrentLinkedQueue<>();
+        this.buckets = new ArrayDeque[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.currentTick = 0;
+    }
+
+    /**
+     * THREAD-SAFE schedules the given task. A delay of 0 or 1 runs the task on the next tick, a delay of n on the n-th
+     * tick from now.
+     */
+    public void schedule(Runnable task, long delay) {
+        inbox.add(new ScheduledTask(task, Math.max(delay, 1)));
+    }
+
+    /**
+     * has to be called by the ticking thread once per tick. Runs all tasks that are due on this tick.
+     */
+    public void tick() {
+        currentTick++;
+
+        // sort the newly scheduled tasks into their buckets
+        ScheduledTask newTask;
+        while ((newTask = inbox.poll()) != null) {
+            newTask.dueTick = currentTick + newTask.delay - 1;
+            buckets[(int) (newTask.dueTick & WHEEL_MASK)].addLast(newTask);
+        }
+
+        // run the due tasks of this bucket, tasks that are due one or more wheel rotations later stay inside
+        ArrayDeque<ScheduledTask> bucket = buckets[(int) (currentTick & WHEEL_MASK)];
+        for (int i = bucket.size(); i > 0; i--) {
+            ScheduledTask task = bucket.pollFirst();
+            if (task.dueTick > currentTick) {
+                bucket.addLast(task);
+                continue;
+            }
+            try {
+                task.runnable.run();
+            } catch (Exception e) {
+                logger.error("Exception while running the scheduled task " + task.runnable, e);
+            }
+        }
+    }
+
+    private static class ScheduledTask {
+
+        private final Runnable runnable;
+        private final long delay;
+        private long dueTick;
+
+        private ScheduledTask(Runnable runnable, long delay) {
+            this.runnable = runnable;
+            this.delay = delay;
+        }
+
+    }
+
+}
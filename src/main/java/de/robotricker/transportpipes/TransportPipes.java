@@ -14,6 +14,7 @@ import de.robotricker.transportpipes.duct.factory.PipeFactory;
 import de.robotricker.transportpipes.duct.manager.GlobalDuctManager;
 import de.robotricker.transportpipes.duct.manager.PipeManager;
 import de.robotricker.transportpipes.duct.pipe.Pipe;
+import de.robotricker.transportpipes.duct.pipe.network.PipeNetworkService;
 import de.robotricker.transportpipes.duct.types.BaseDuctType;
 import de.robotricker.transportpipes.inventory.PlayerSettingsInventory;
 import de.robotricker.transportpipes.items.ItemService;
@@ -22,24 +23,28 @@ import de.robotricker.transportpipes.listener.DuctListener;
 import de.robotricker.transportpipes.listener.PlayerListener;
 import de.robotricker.transportpipes.listener.TPContainerListener;
 import de.robotricker.transportpipes.listener.WorldListener;
+import de.robotricker.transportpipes.location.BlockLocation;
 import de.robotricker.transportpipes.log.LoggerService;
 import de.robotricker.transportpipes.protocol.ProtocolService;
 import de.robotricker.transportpipes.rendersystems.RenderSystem;
 import de.robotricker.transportpipes.rendersystems.pipe.modelled.ModelledPipeRenderSystem;
 import de.robotricker.transportpipes.rendersystems.pipe.vanilla.VanillaPipeRenderSystem;
 import de.robotricker.transportpipes.saving.DiskService;
+import de.robotricker.transportpipes.scheduler.ExecutionService;
 import de.robotricker.transportpipes.utils.LWCUtils;
 import de.robotricker.transportpipes.utils.ProtectionUtils.ProtectionUtils;
 import de.robotricker.transportpipes.utils.WorldEditUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.World;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Objects;
 import java.util.logging.Level;
@@ -51,6 +56,7 @@ public class TransportPipes extends JavaPlugin {
     private Injector injector;
 
     private ThreadService thread;
+    private ExecutionService executionService;
     private DiskService diskService;
 
     public String serverVersion;
@@ -91,6 +97,9 @@ public class TransportPipes extends JavaPlugin {
         //Initialize logger
         LoggerService logger = injector.getSingleton(LoggerService.class);
 
+        //Choose the server thread execution backend
+        executionService = injector.getSingleton(ExecutionService.class);
+
         //Initialize configs
         injector.getSingleton(GeneralConf.class);
         injector.register(LangConf.class, new LangConf(this, injector.getSingleton(GeneralConf.class).getLanguage()));
@@ -127,12 +136,15 @@ public class TransportPipes extends JavaPlugin {
         diskService = injector.getSingleton(DiskService.class);
 
         TPContainerListener tpContainerListener = injector.getSingleton(TPContainerListener.class);
+        LoadedChunkService loadedChunkService = injector.getSingleton(LoadedChunkService.class);
         runTaskSync(() -> {
             for (World world : Bukkit.getWorlds()) {
-                for (Chunk loadedChunk : world.getLoadedChunks()) {
+                // chunks which were loaded before the plugin was enabled are scanned inside the threads which own them.
+                // The ducts are loaded afterwards, so they connect to the containers of all these chunks.
+                executionService.executeAtLocations(Arrays.asList(world.getLoadedChunks()), Chunk::getWorld, loadedChunk -> new BlockLocation(loadedChunk.getX() << 4, 0, loadedChunk.getZ() << 4), loadedChunk -> {
+                    loadedChunkService.notifyChunkLoaded(loadedChunk);
                     tpContainerListener.handleChunkLoadSync(loadedChunk, true);
-                }
-                diskService.loadDuctsSync(world);
+                }, () -> diskService.loadDuctsSync(world));
             }
         });
 
@@ -161,6 +173,7 @@ public class TransportPipes extends JavaPlugin {
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
+            injector.getSingleton(PipeNetworkService.class).shutdown();
             for (World world : Bukkit.getWorlds()) {
                 saveWorld(world);
             }
@@ -173,12 +186,30 @@ public class TransportPipes extends JavaPlugin {
 
     public void runTaskSync(Runnable task) {
         if (isEnabled()) {
-            Bukkit.getScheduler().runTask(this, task);
+            executionService.runGlobal(task);
+        }
+    }
+
+    /**
+     * runs the given task inside the server thread which owns the given block location
+     */
+    public void runTaskSync(World world, BlockLocation blockLoc, Runnable task) {
+        if (isEnabled()) {
+            executionService.runAtLocation(world, blockLoc, task);
+        }
+    }
+
+    /**
+     * runs the given task inside the server thread which owns the given entity
+     */
+    public void runTaskSync(Entity entity, Runnable task) {
+        if (isEnabled()) {
+            executionService.runForEntity(entity, task);
         }
     }
 
     public void runTaskAsync(Runnable runnable, long delay) {
-        thread.getTasks().put(runnable, delay);
+        thread.scheduleTask(runnable, delay);
     }
 
     public Injector getInjector() {
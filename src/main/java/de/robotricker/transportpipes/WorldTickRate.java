@@ -0,0 +1,100 @@
+package de.robotricker.transportpipes;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The simulation rate of the pipes inside one world. A world is only ticked on every n-th TransportPipes tick, where n
+ * is its rate divisor. The divisor is raised while the measured cost of the world exceeds its budget and lowered again
+ * as soon as the world would stay well below the budget with the next higher rate.
+ */
+public class WorldTickRate {
+
+    /**
+     * the amount of world ticks the average cost has to settle before the next rate change
+     */
+    private static final int ADJUST_COOLDOWN = 20;
+
+    /**
+     * THREAD-SAFE accumulates the async and sync cost since the last world tick
+     */
+    private final AtomicLong pendingCostNanos;
+
+    private volatile int rateDivisor;
+    private volatile long worldTick;
+    private volatile long averageCostNanos;
+
+    /**
+     * only accessed by the TransportPipes thread
+     */
+    private int skippedTicks;
+    private int adjustCooldown;
+
+    WorldTickRate() {
+        this.pendingCostNanos = new AtomicLong();
+        this.rateDivisor = 1;
+        this.worldTick = 0;
+        this.averageCostNanos = 0;
+    }
+
+    /**
+     * called by the TransportPipes thread on every TransportPipes tick
+     *
+     * @return whether the world has to be ticked in this tick
+     */
+    public boolean beginTick() {
+        if (++skippedTicks < rateDivisor) {
+            return false;
+        }
+        skippedTicks = 0;
+        worldTick++;
+        return true;
+    }
+
+    /**
+     * called by the TransportPipes thread after the world was ticked. Updates the average cost and adjusts the rate.
+     *
+     * @param budgetNanos  the budget of a world tick
+     * @param maxDivisor   the highest allowed rate divisor
+     */
+    public void endTick(long budgetNanos, int maxDivisor) {
+        long cost = pendingCostNanos.getAndSet(0);
+        averageCostNanos = averageCostNanos + (cost - averageCostNanos) / 10;
+
+        if (adjustCooldown > 0) {
+            adjustCooldown--;
+            return;
+        }
+        // the cost of a world tick is spread over rateDivisor TransportPipes ticks
+        int divisor = rateDivisor;
+        if (averageCostNanos / divisor > budgetNanos && divisor < maxDivisor) {
+            rateDivisor = divisor + 1;
+            adjustCooldown = ADJUST_COOLDOWN;
+        } else if (divisor > 1 && (averageCostNanos / (divisor - 1) < budgetNanos / 2 || divisor > maxDivisor)) {
+            rateDivisor = divisor - 1;
+            adjustCooldown = ADJUST_COOLDOWN;
+        }
+    }
+
+    /**
+     * THREAD-SAFE adds cost which was caused by this world
+     */
+    public void addCostNanos(long nanos) {
+        pendingCostNanos.addAndGet(nanos);
+    }
+
+    public int getRateDivisor() {
+        return rateDivisor;
+    }
+
+    /**
+     * the amount of ticks this world was ticked
+     */
+    public long getWorldTick() {
+        return worldTick;
+    }
+
+    public long getAverageCostNanos() {
+        return averageCostNanos;
+    }
+
+}
@@ -12,6 +12,7 @@ import org.bukkit.block.Block;
 import org.bukkit.inventory.ItemStack;
 
 import de.robotricker.transportpipes.ThreadService;
+import de.robotricker.transportpipes.TickRateService;
 import de.robotricker.transportpipes.duct.Duct;
 import de.robotricker.transportpipes.duct.DuctRegister;
 import de.robotricker.transportpipes.duct.manager.DuctManager;
@@ -38,6 +39,9 @@ public class TransportPipesAPI {
     @Inject
     private ThreadService threadService;
 
+    @Inject
+    private TickRateService tickRateService;
+
     @Inject
     private TPContainerListener tpContainerListener;
 
@@ -177,6 +181,58 @@ public class TransportPipesAPI {
         return threadService.getPreferredTPS();
     }
 
+    /**
+     * Gets the average duration of a TransportPipes tick
+     * @return The moving average of the tick duration in nanoseconds
+     */
+    public long getAverageTickNanos() {
+        return threadService.getAverageTickNanos();
+    }
+
+    /**
+     * Gets the number of TransportPipes ticks that took longer than one tick period
+     * @return The number of overrun ticks since the plugin was enabled
+     */
+    public long getOverrunTicks() {
+        return threadService.getOverrunTicks();
+    }
+
+    /**
+     * Gets the number of TransportPipes ticks that were skipped because the TransportPipes thread fell too far behind
+     * @return The number of skipped ticks since the plugin was enabled
+     */
+    public long getSkippedTicks() {
+        return threadService.getSkippedTicks();
+    }
+
+    /**
+     * Gets the rate divisor of a world. The pipes of a world are only ticked on every n-th TransportPipes tick, where n
+     * is raised while the world exceeds its tick budget and lowered again when its load drops.
+     * @param world The world to get the rate divisor of
+     * @return The current rate divisor, 1 if the world is ticked on every TransportPipes tick
+     */
+    public int getWorldTickRateDivisor(World world) {
+        return tickRateService.getWorldTickRate(world).getRateDivisor();
+    }
+
+    /**
+     * Gets the rate at which the pipes of a world are simulated
+     * @param world The world to get the simulation rate of
+     * @return The preferred TransportPipes TPS divided by the rate divisor of the world
+     */
+    public double getWorldTPS(World world) {
+        return threadService.getPreferredTPS() / (double) getWorldTickRateDivisor(world);
+    }
+
+    /**
+     * Gets the average cost of a world tick
+     * @param world The world to get the tick cost of
+     * @return The moving average of the cost of one world tick in nanoseconds, including the main thread work caused by it
+     */
+    public long getWorldAverageTickNanos(World world) {
+        return tickRateService.getWorldTickRate(world).getAverageCostNanos();
+    }
+
     /**
      * Adds or removes a vanilla Container Block
      * @param block The Block to update
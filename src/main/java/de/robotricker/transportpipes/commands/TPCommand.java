@@ -1,6 +1,7 @@
 package de.robotricker.transportpipes.commands;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -20,6 +21,8 @@ import co.aikar.commands.annotation.HelpCommand;
 import co.aikar.commands.annotation.Subcommand;
 import co.aikar.commands.annotation.Syntax;
 import de.robotricker.transportpipes.ThreadService;
+import de.robotricker.transportpipes.TickRateService;
+import de.robotricker.transportpipes.WorldTickRate;
 import de.robotricker.transportpipes.duct.Duct;
 import de.robotricker.transportpipes.duct.manager.GlobalDuctManager;
 import de.robotricker.transportpipes.inventory.CreativeInventory;
@@ -33,6 +36,8 @@ public class TPCommand extends BaseCommand {
     @Inject
     private ThreadService threadService;
     @Inject
+    private TickRateService tickRateService;
+    @Inject
     private JavaPlugin plugin;
     @Inject
     private GlobalDuctManager globalDuctManager;
@@ -61,6 +66,7 @@ public class TPCommand extends BaseCommand {
 
         cs.sendMessage(MessageUtils.formatColoredMsg("&6TransportPipes &7v" + plugin.getDescription().getVersion()));
         cs.sendMessage(MessageUtils.formatColoredMsg("&6TPS: " + tpsColor + tps + " &6/ &2" + pref_tps));
+        cs.sendMessage(MessageUtils.formatColoredMsg("&6Tick: &e" + formatMillis(threadService.getAverageTickNanos()) + "ms &6avg, &e" + formatMillis(threadService.getMaxTickNanos()) + "ms &6max, &e" + threadService.getOverrunTicks() + " &6overruns, &e" + threadService.getSkippedTicks() + " &6skipped"));
 
         for (World world : Bukkit.getWorlds()) {
             int worldPipes = 0;
@@ -73,9 +79,19 @@ public class TPCommand extends BaseCommand {
                 }
             }
             cs.sendMessage(MessageUtils.formatColoredMsg("&6" + world.getName() + ": &e" + worldPipes + " &6" + "pipes, &e" + worldItems + " &6items"));
+            WorldTickRate worldTickRate = tickRateService.getWorldTickRates().get(world);
+            if (worldTickRate != null) {
+                int divisor = worldTickRate.getRateDivisor();
+                ChatColor rateColor = divisor == 1 ? ChatColor.DARK_GREEN : ChatColor.GOLD;
+                cs.sendMessage(MessageUtils.formatColoredMsg("  &6TPS: " + rateColor + String.format("%.1f", pref_tps / (double) divisor) + " &6(1/" + divisor + "), &e" + formatMillis(worldTickRate.getAverageCostNanos()) + "ms &6per world tick"));
+            }
         }
     }
 
+    private static String formatMillis(long nanos) {
+        return String.format("%.2f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
     @Subcommand("creative")
     @CommandPermission("transportpipes.creative")
     public void onCreativeDuctInv(Player p) {
@@ -5,12 +5,12 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.Plugin;
@@ -20,7 +20,10 @@ public class Conf {
     private final Plugin configPlugin;
     private Path configFile;
     private final YamlConfiguration yamlConf;
-    private final Map<String, Object> cachedValues = new HashMap<>();
+    /**
+     * THREAD-SAFE config values are read by all tick threads
+     */
+    private final Map<String, Object> cachedValues = new ConcurrentHashMap<>();
 
     /**
      * @param onlyOverwriteExistingProperties when true: only sets oldconf properties if the property exists in the new conf
@@ -87,7 +90,8 @@ public class Conf {
     public void overrideAsync(String key, Object value) {
         cachedValues.put(key, value);
         yamlConf.set(key, value);
-        Bukkit.getScheduler().runTaskAsynchronously(configPlugin, this::saveToFileSync);
+        // not scheduled with the bukkit scheduler, region threaded servers don't provide it
+        CompletableFuture.runAsync(this::saveToFileSync);
     }
 
     public Object read(String key) {
@@ -7,6 +7,7 @@ import javax.inject.Inject;
 import org.bukkit.plugin.Plugin;
 
 import de.robotricker.transportpipes.ResourcepackService;
+import de.robotricker.transportpipes.duct.pipe.network.ItemMovementEngine;
 
 public class GeneralConf extends Conf {
 
@@ -45,6 +46,11 @@ public class GeneralConf extends Conf {
         return (List<String>) read("disabled_worlds");
     }
 
+    @SuppressWarnings("unchecked")
+    public List<String> getHiddenItemWorlds() {
+        return (List<String>) read("hidden_item_worlds");
+    }
+
     public String getWrenchItem() {
         return (String) read("wrench.item");
     }
@@ -69,6 +75,54 @@ public class GeneralConf extends Conf {
         return (boolean) read("merge_same_pipe_items");
     }
 
+    public int getMaxCatchUpTicks() {
+        return (int) read("max_catch_up_ticks");
+    }
+
+    public int getTickThreads() {
+        return (int) read("tick_threads");
+    }
+
+    public double getSyncBigTickBudgetMillis() {
+        return ((Number) read("sync_big_tick_budget_ms")).doubleValue();
+    }
+
+    public double getWorldTickBudgetMillis() {
+        return ((Number) read("world_tick_budget_ms")).doubleValue();
+    }
+
+    public int getMaxWorldTickDivisor() {
+        return (int) read("max_world_tick_divisor");
+    }
+
+    public int getMaxRouteHistoryPipes() {
+        return (int) read("max_route_history_pipes");
+    }
+
+    public boolean isFlowControlEnabled() {
+        return (boolean) read("flow_control");
+    }
+
+    public boolean isLodSimulationEnabled() {
+        return (boolean) read("lod_simulation");
+    }
+
+    public boolean isItemTrainsEnabled() {
+        return (boolean) read("item_trains");
+    }
+
+    public boolean isRoutingTablesEnabled() {
+        return (boolean) read("routing_tables");
+    }
+
+    public ItemMovementEngine getItemMovementEngine() {
+        String engine = (String) read("item_movement_engine");
+        if (engine != null && engine.equalsIgnoreCase("event")) {
+            return ItemMovementEngine.EVENT;
+        }
+        return ItemMovementEngine.STEP;
+    }
+
     public ResourcepackService.ResourcepackMode getResourcepackMode() {
         String url = (String) read("resourcepack_mode");
         if (url == null || url.equalsIgnoreCase("default")) {
@@ -5,14 +5,29 @@ import org.bukkit.block.Lockable;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 
+import de.robotricker.transportpipes.LoadedChunkSet;
 import de.robotricker.transportpipes.api.TransportPipesContainer;
 
 public abstract class BlockContainer implements TransportPipesContainer {
 
     protected final Block block;
+    private final LoadedChunkSet loadedChunks;
+    private final int chunkX;
+    private final int chunkZ;
 
-    public BlockContainer(Block block) {
+    public BlockContainer(Block block, LoadedChunkSet loadedChunks) {
         this.block = block;
+        this.loadedChunks = loadedChunks;
+        this.chunkX = block.getX() >> 4;
+        this.chunkZ = block.getZ() >> 4;
+    }
+
+    /**
+     * THREAD-SAFE
+     */
+    @Override
+    public boolean isInLoadedChunk() {
+        return loadedChunks.isLoaded(chunkX, chunkZ);
     }
 
     /**
@@ -1,33 +1,26 @@
 package de.robotricker.transportpipes.container;
 
-import org.bukkit.Chunk;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BrewingStand;
 import org.bukkit.inventory.BrewerInventory;
 import org.bukkit.inventory.ItemStack;
 
+import de.robotricker.transportpipes.LoadedChunkSet;
 import de.robotricker.transportpipes.duct.pipe.filter.ItemFilter;
 import de.robotricker.transportpipes.location.TPDirection;
 
 public class BrewingStandContainer extends BlockContainer {
 
-    private final Chunk chunk;
     private BrewingStand cachedBrewingStand;
     private BrewerInventory cachedInv;
 
-    public BrewingStandContainer(Block block) {
-        super(block);
-        this.chunk = block.getChunk();
+    public BrewingStandContainer(Block block, LoadedChunkSet loadedChunks) {
+        super(block, loadedChunks);
         this.cachedBrewingStand = (BrewingStand) block.getState();
         this.cachedInv = cachedBrewingStand.getInventory();
     }
 
-    @Override
-    public boolean isInLoadedChunk() {
-        return chunk.isLoaded();
-    }
-
     @Override
     public ItemStack extractItem(TPDirection extractDirection, int amount, ItemFilter itemFilter) {
         if (!isInLoadedChunk()) {
@@ -38,13 +31,13 @@ public class BrewingStandContainer extends BlockContainer {
         }
         if (extractDirection != TPDirection.DOWN && ((BrewingStand) block.getState()).getBrewingTime() == 0) {
             ItemStack takeItem = null;
-            if (itemFilter.applyFilter(cachedInv.getItem(0)).getWeight() > 0) {
+            if (itemFilter.getWeight(cachedInv.getItem(0)) > 0) {
                 takeItem = cachedInv.getItem(0);
                 cachedInv.setItem(0, null);
-            } else if (itemFilter.applyFilter(cachedInv.getItem(1)).getWeight() > 0) {
+            } else if (itemFilter.getWeight(cachedInv.getItem(1)) > 0) {
                 takeItem = cachedInv.getItem(1);
                 cachedInv.setItem(1, null);
-            } else if (itemFilter.applyFilter(cachedInv.getItem(2)).getWeight() > 0) {
+            } else if (itemFilter.getWeight(cachedInv.getItem(2)) > 0) {
                 takeItem = cachedInv.getItem(2);
                 cachedInv.setItem(2, null);
             }
@@ -1,13 +1,13 @@
 package de.robotricker.transportpipes.container;
 
 import de.robotricker.transportpipes.items.ItemService;
-import org.bukkit.Chunk;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.Furnace;
 import org.bukkit.inventory.FurnaceInventory;
 import org.bukkit.inventory.ItemStack;
 
+import de.robotricker.transportpipes.LoadedChunkSet;
 import de.robotricker.transportpipes.duct.pipe.filter.ItemFilter;
 import de.robotricker.transportpipes.location.TPDirection;
 
@@ -15,24 +15,17 @@ import java.util.Objects;
 
 public class FurnaceContainer extends BlockContainer {
 
-    private final Chunk chunk;
     private Furnace cachedFurnace;
     private FurnaceInventory cachedInv;
     private BlockState cachedBlockState;
 
-    public FurnaceContainer(Block block) {
-        super(block);
-        this.chunk = block.getChunk();
+    public FurnaceContainer(Block block, LoadedChunkSet loadedChunks) {
+        super(block, loadedChunks);
         this.cachedFurnace = (Furnace) block.getState();
         this.cachedInv = cachedFurnace.getInventory();
         this.cachedBlockState = block.getState();
     }
 
-    @Override
-    public boolean isInLoadedChunk() {
-        return chunk.isLoaded();
-    }
-
     @Override
     public ItemStack extractItem(TPDirection extractDirection, int amount, ItemFilter itemFilter) {
         if (!isInLoadedChunk()) {
@@ -41,7 +34,7 @@ public class FurnaceContainer extends BlockContainer {
         if (isInvLocked(cachedFurnace)) {
             return null;
         }
-        if (itemFilter.applyFilter(cachedInv.getResult()).getWeight() > 0) {
+        if (itemFilter.getWeight(cachedInv.getResult()) > 0) {
             ItemStack resultItem = Objects.requireNonNull(cachedInv.getResult()).clone();
             ItemStack returnItem = resultItem.clone();
 
@@ -0,0 +1,141 @@
+package de.robotricker.transportpipes.container;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import de.robotricker.transportpipes.duct.pipe.filter.ItemKey;
+
+/**
+ * A copy of the free space and the stock of an inventory per {@link ItemKey}. The server thread refreshes it after
+ * inventory events, block updates and whenever it is older than a second, so the TransportPipes thread can look up how
+ * much of an item fits into the inventory without scanning its slots and without touching the live inventory.
+ * <p>
+ * A refresh scans the slots and publishes a new snapshot. The pipes' own inserts and extracts are applied as a delta
+ * instead: they update the concurrent maps of the current snapshot in place and publish a snapshot with the new number
+ * of empty slots, which shares these maps. Reading doesn't need any locks, but a reader may see a delta half applied.
+ * The mirror may lag behind the live inventory, which only affects routing decisions: inserting and extracting always
+ * works on the live inventory.
+ */
+public final class InventoryMirror {
+
+    private volatile Snapshot snapshot = new Snapshot(0, new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), 0);
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    private record Snapshot(int emptySlots, Map<ItemKey, Integer> partialSpace, Map<ItemKey, Integer> stock, long refreshTime) {
+    }
+
+    /**
+     * has to be called inside the server thread which owns the inventory
+     */
+    public void refresh(Inventory inventory) {
+        refreshPending.set(false);
+        int emptySlots = 0;
+        Map<ItemKey, Integer> partialSpace = new ConcurrentHashMap<>();
+        Map<ItemKey, Integer> stock = new ConcurrentHashMap<>();
+        for (ItemStack item : inventory.getContents()) {
+            if (item == null || item.getType() == Material.AIR) {
+                emptySlots++;
+                continue;
+            }
+            ItemKey itemKey = ItemKey.of(item);
+            stock.merge(itemKey, item.getAmount(), Integer::sum);
+            if (item.getAmount() < item.getMaxStackSize()) {
+                partialSpace.merge(itemKey, item.getMaxStackSize() - item.getAmount(), Integer::sum);
+            }
+        }
+        snapshot = new Snapshot(emptySlots, partialSpace, stock, System.currentTimeMillis());
+    }
+
+    /**
+     * has to be called inside the server thread which owns the inventory after the given amount of the item was added
+     * to the inventory with {@link Inventory#addItem(ItemStack...)}, which fills the partial stacks first
+     */
+    public void applyInsert(ItemKey itemKey, int amount) {
+        if (amount <= 0) {
+            return;
+        }
+        Snapshot snapshot = this.snapshot;
+        int maxStackSize = itemKey.getMaxStackSize();
+        int intoPartialStacks = Math.min(amount, snapshot.partialSpace().getOrDefault(itemKey, 0));
+        int intoEmptySlots = amount - intoPartialStacks;
+        int newStacks = (intoEmptySlots + maxStackSize - 1) / maxStackSize;
+        addDelta(snapshot.partialSpace(), itemKey, newStacks * maxStackSize - intoEmptySlots - intoPartialStacks);
+        addDelta(snapshot.stock(), itemKey, amount);
+        this.snapshot = new Snapshot(Math.max(0, snapshot.emptySlots() - newStacks), snapshot.partialSpace(), snapshot.stock(), snapshot.refreshTime());
+    }
+
+    /**
+     * has to be called inside the server thread which owns the inventory after the amount of the item inside one slot
+     * changed
+     */
+    public void applySlotChange(ItemKey itemKey, int amountBefore, int amountAfter) {
+        if (amountBefore == amountAfter) {
+            return;
+        }
+        Snapshot snapshot = this.snapshot;
+        int maxStackSize = itemKey.getMaxStackSize();
+        int spaceBefore = amountBefore > 0 ? maxStackSize - amountBefore : 0;
+        int spaceAfter = amountAfter > 0 ? maxStackSize - amountAfter : 0;
+        addDelta(snapshot.partialSpace(), itemKey, spaceAfter - spaceBefore);
+        addDelta(snapshot.stock(), itemKey, amountAfter - amountBefore);
+        int emptySlots = snapshot.emptySlots() + (amountAfter <= 0 ? 1 : 0) - (amountBefore <= 0 ? 1 : 0);
+        this.snapshot = new Snapshot(Math.max(0, emptySlots), snapshot.partialSpace(), snapshot.stock(), snapshot.refreshTime());
+    }
+
+    /**
+     * adds the delta to the value of the given key and removes the key as soon as its value drops to 0
+     */
+    private static void addDelta(Map<ItemKey, Integer> map, ItemKey itemKey, int delta) {
+        if (delta != 0) {
+            map.compute(itemKey, (key, value) -> {
+                int newValue = (value != null ? value : 0) + delta;
+                return newValue > 0 ? newValue : null;
+            });
+        }
+    }
+
+    /**
+     * marks this mirror for a refresh
+     *
+     * @return false if a refresh is already pending
+     */
+    public boolean requestRefresh() {
+        return refreshPending.compareAndSet(false, true);
+    }
+
+    /**
+     * THREAD-SAFE
+     */
+    public int getSpace(ItemKey itemKey) {
+        Snapshot snapshot = this.snapshot;
+        return snapshot.emptySlots() * itemKey.getMaxStackSize() + snapshot.partialSpace().getOrDefault(itemKey, 0);
+    }
+
+    /**
+     * THREAD-SAFE
+     */
+    public int getStock(ItemKey itemKey) {
+        return snapshot.stock().getOrDefault(itemKey, 0);
+    }
+
+    /**
+     * THREAD-SAFE the keys of all items inside the inventory. The deltas of inserts and extracts may change it while it
+     * is iterated.
+     */
+    public Iterable<ItemKey> getStockedItems() {
+        return snapshot.stock().keySet();
+    }
+
+    /**
+     * THREAD-SAFE
+     */
+    public long getRefreshTime() {
+        return snapshot.refreshTime();
+    }
+
+}
@@ -4,34 +4,80 @@ import java.util.Collection;
 import java.util.Objects;
 
 import org.bukkit.Bukkit;
-import org.bukkit.Chunk;
-import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.block.DoubleChest;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 
+import de.robotricker.transportpipes.LoadedChunkSet;
+import de.robotricker.transportpipes.TransportPipes;
 import de.robotricker.transportpipes.api.DuctExtractEvent;
 import de.robotricker.transportpipes.api.DuctInsertEvent;
 import de.robotricker.transportpipes.duct.pipe.filter.ItemFilter;
+import de.robotricker.transportpipes.duct.pipe.filter.ItemKey;
+import de.robotricker.transportpipes.location.BlockLocation;
 import de.robotricker.transportpipes.location.TPDirection;
 
 public class SimpleInventoryContainer extends BlockContainer {
 
-    private final Chunk chunk;
+    /**
+     * the time after which the mirror is refreshed, in case the inventory was changed without an inventory event, e.g.
+     * by another plugin
+     */
+    private static final long MIRROR_MAX_AGE_MILLIS = 1000;
+
+    private final TransportPipes transportPipes;
+    private final BlockLocation blockLoc;
     private InventoryHolder cachedInvHolder;
     private Inventory cachedInv;
+    /**
+     * the mirror of the inventory of this container. Both halves of a double chest share the inventory of the double
+     * chest, so they share its mirror as well.
+     */
+    private volatile InventoryMirror mirror;
 
-    public SimpleInventoryContainer(Block block) {
-        super(block);
-        this.chunk = block.getChunk();
+    public SimpleInventoryContainer(Block block, LoadedChunkSet loadedChunks, TransportPipes transportPipes) {
+        super(block, loadedChunks);
+        this.transportPipes = transportPipes;
+        this.blockLoc = new BlockLocation(block.getLocation());
         this.cachedInvHolder = (InventoryHolder) block.getState();
         this.cachedInv = cachedInvHolder.getInventory();
+        this.mirror = new InventoryMirror();
+        this.mirror.refresh(cachedInv);
     }
 
-    @Override
-    public boolean isInLoadedChunk() {
-        return chunk.isLoaded();
+    public InventoryMirror getMirror() {
+        return mirror;
+    }
+
+    /**
+     * has to be called inside the server thread which owns this container after its inventory changed
+     */
+    public void refreshMirror() {
+        mirror.refresh(cachedInv);
+    }
+
+    /**
+     * lets this container use the mirror of the other half of its double chest. Has to be called inside the server
+     * thread which owns this container after both halves were updated with {@link #updateBlock()}.
+     */
+    public void shareMirror(SimpleInventoryContainer otherHalf) {
+        if (cachedInvHolder instanceof DoubleChest && otherHalf.cachedInvHolder instanceof DoubleChest) {
+            this.mirror = otherHalf.mirror;
+        }
+    }
+
+    /**
+     * whether the mirror contains any item which passes the given filter
+     */
+    private boolean hasExtractableItem(ItemFilter itemFilter) {
+        for (ItemKey itemKey : mirror.getStockedItems()) {
+            if (itemFilter.getWeight(itemKey) > 0) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -42,13 +88,21 @@ public class SimpleInventoryContainer extends BlockContainer {
         if (isInvLocked(cachedInvHolder)) {
             return null;
         }
+        if (System.currentTimeMillis() - mirror.getRefreshTime() > MIRROR_MAX_AGE_MILLIS) {
+            refreshMirror();
+        }
+        if (!hasExtractableItem(itemFilter)) {
+            return null;
+        }
         ItemStack itemTaken = null;
+        ItemKey takenKey = null;
         for (int i = 0; i < cachedInv.getSize(); i++) {
-            if (itemFilter.applyFilter(cachedInv.getItem(i)).getWeight() > 0) {
+            if (itemFilter.getWeight(cachedInv.getItem(i)) > 0) {
                 int amountBefore = itemTaken != null ? itemTaken.getAmount() : 0;
                 if (itemTaken == null) {
                     itemTaken = Objects.requireNonNull(cachedInv.getItem(i)).clone();
                     itemTaken.setAmount(Math.min(Math.min(amount, itemTaken.getAmount()), itemTaken.getMaxStackSize()));
+                    takenKey = ItemKey.of(itemTaken);
                 } else if (itemTaken.isSimilar(cachedInv.getItem(i))) {
                     itemTaken.setAmount(Math.min(Math.min(amount, amountBefore + Objects.requireNonNull(cachedInv.getItem(i)).getAmount()), itemTaken.getMaxStackSize()));
                 }
@@ -62,7 +116,9 @@ public class SimpleInventoryContainer extends BlockContainer {
                     } else itemTaken = null;
                     continue;
                 }
+                int slotAmountBefore = Objects.requireNonNull(cachedInv.getItem(i)).getAmount();
                 cachedInv.setItem(i, invItem.getAmount() <= 0 ? null : invItem);
+                mirror.applySlotChange(takenKey, slotAmountBefore, Math.max(0, invItem.getAmount()));
             }
         }
         return itemTaken;
@@ -81,7 +137,15 @@ public class SimpleInventoryContainer extends BlockContainer {
         if(insertEvent.isCancelled()){
             return insertion;
         }
+        // addItem changes the amount of the insertion to the amount that didn't fit
+        ItemKey insertionKey = ItemKey.of(insertion);
+        int amount = insertion.getAmount();
         Collection<ItemStack> overflow = cachedInv.addItem(insertion).values();
+        int overflowAmount = 0;
+        for (ItemStack overflowItem : overflow) {
+            overflowAmount += overflowItem.getAmount();
+        }
+        mirror.applyInsert(insertionKey, amount - overflowAmount);
         if (overflow.isEmpty()) {
             return null;
         } else {
@@ -95,24 +159,24 @@ public class SimpleInventoryContainer extends BlockContainer {
             return 0;
         }
 
-        int space = 0;
-
-        for (int i = 0; i < cachedInv.getSize(); i++) {
-            ItemStack item = cachedInv.getItem(i);
-            if (item == null || item.getType() == Material.AIR) {
-                space += insertion.getMaxStackSize();
-            } else if (item.isSimilar(insertion) && item.getAmount() < item.getMaxStackSize()) {
-                space += item.getMaxStackSize() - item.getAmount();
-            }
+        // the live inventory must not be scanned outside of the server thread
+        InventoryMirror mirror = this.mirror;
+        if (System.currentTimeMillis() - mirror.getRefreshTime() > MIRROR_MAX_AGE_MILLIS && mirror.requestRefresh()) {
+            // the inventory may have been changed without an inventory event, the old snapshot is used until then
+            transportPipes.runTaskSync(block.getWorld(), blockLoc, this::refreshMirror);
         }
-
-        return space;
+        return mirror.getSpace(ItemKey.of(insertion));
     }
 
     @Override
     public void updateBlock() {
         this.cachedInvHolder = ((InventoryHolder) block.getState()).getInventory().getHolder();
         this.cachedInv = Objects.requireNonNull(cachedInvHolder).getInventory();
+        if (!(cachedInvHolder instanceof DoubleChest)) {
+            // this container may have shared the mirror of a double chest which got split
+            this.mirror = new InventoryMirror();
+        }
+        refreshMirror();
     }
 
 }
@@ -1,5 +1,6 @@
 package de.robotricker.transportpipes.duct;
 
+import de.robotricker.transportpipes.LoadedChunkSet;
 import de.robotricker.transportpipes.TransportPipes;
 import de.robotricker.transportpipes.config.GeneralConf;
 import de.robotricker.transportpipes.duct.manager.DuctManager;
@@ -29,6 +30,7 @@ public abstract class Duct {
     private final World world;
     private final int chunkX;
     private final int chunkZ;
+    private final LoadedChunkSet loadedChunks;
     private final ConcurrentHashMap<TPDirection, Duct> connectedDucts;
     private final List<TPDirection> blockedConnections;
     private BlockData obfuscatedWith;
@@ -39,6 +41,7 @@ public abstract class Duct {
         this.world = world;
         chunkX = chunk.getX();
         chunkZ = chunk.getZ();
+        this.loadedChunks = globalDuctManager.getLoadedChunks(world);
         this.connectedDucts = new ConcurrentHashMap<>();
         this.blockedConnections = new ArrayList<>();
         this.settingsInv = settingsInv;
@@ -74,8 +77,15 @@ public abstract class Duct {
         return world;
     }
 
+    /**
+     * THREAD-SAFE
+     */
     public boolean isInLoadedChunk() {
-        return world.isChunkLoaded(chunkX, chunkZ);
+        return loadedChunks.isLoaded(chunkX, chunkZ);
+    }
+
+    public long getChunkKey() {
+        return LoadedChunkSet.getChunkKey(chunkX, chunkZ);
     }
 
     public void notifyConnectionChange() {
@@ -135,7 +145,7 @@ public abstract class Duct {
 
         //break particles
         if (destroyer != null && getBreakParticleData() != null) {
-            transportPipes.runTaskSync(() -> destroyer.getWorld().spawnParticle(Particle.ITEM_CRACK, getBlockLoc().getX() + 0.5f, getBlockLoc().getY() + 0.5f, getBlockLoc().getZ() + 0.5f, 30, 0.25f, 0.25f, 0.25f, 0.05f, new ItemStack(getBreakParticleData())));
+            transportPipes.runTaskSync(getWorld(), getBlockLoc(), () -> destroyer.getWorld().spawnParticle(Particle.ITEM_CRACK, getBlockLoc().getX() + 0.5f, getBlockLoc().getY() + 0.5f, getBlockLoc().getZ() + 0.5f, 30, 0.25f, 0.25f, 0.25f, 0.05f, new ItemStack(getBreakParticleData())));
         }
 
         return dropItems;
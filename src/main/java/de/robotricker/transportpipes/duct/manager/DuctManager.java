@@ -51,6 +51,20 @@ public abstract class DuctManager<T extends Duct> {
         }
     }
 
+    /**
+     * called after the duct was added to the duct map of its world
+     */
+    public void notifyDuctRegistered(Duct duct) {
+
+    }
+
+    /**
+     * called after the duct was removed from the duct map of its world
+     */
+    public void notifyDuctUnregistered(Duct duct) {
+
+    }
+
     public void updateNonDuctConnections(Duct duct) {
 
     }
@@ -14,11 +14,15 @@ import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import de.robotricker.transportpipes.LoadedChunkService;
+import de.robotricker.transportpipes.LoadedChunkSet;
 import de.robotricker.transportpipes.PlayerSettingsService;
 import de.robotricker.transportpipes.TransportPipes;
 import de.robotricker.transportpipes.config.PlayerSettingsConf;
 import de.robotricker.transportpipes.duct.Duct;
 import de.robotricker.transportpipes.duct.DuctRegister;
+import de.robotricker.transportpipes.duct.sync.DropItemsCommand;
+import de.robotricker.transportpipes.duct.sync.SyncCommandBuffer;
 import de.robotricker.transportpipes.duct.types.BaseDuctType;
 import de.robotricker.transportpipes.duct.types.DuctType;
 import de.robotricker.transportpipes.location.BlockLocation;
@@ -34,6 +38,8 @@ public class GlobalDuctManager {
     protected final ProtocolService protocolService;
     protected final DuctRegister ductRegister;
     protected final PlayerSettingsService playerSettingsService;
+    protected final SyncCommandBuffer syncCommandBuffer;
+    protected final LoadedChunkService loadedChunkService;
 
     /**
      * ThreadSafe
@@ -45,15 +51,24 @@ public class GlobalDuctManager {
     private final ConcurrentHashMap<Player, Set<Duct>> playerDucts;
 
     @Inject
-    public GlobalDuctManager(TransportPipes transportPipes, ProtocolService protocolService, DuctRegister ductRegister, PlayerSettingsService playerSettingsService) {
+    public GlobalDuctManager(TransportPipes transportPipes, ProtocolService protocolService, DuctRegister ductRegister, PlayerSettingsService playerSettingsService, SyncCommandBuffer syncCommandBuffer, LoadedChunkService loadedChunkService) {
         this.transportPipes = transportPipes;
         this.protocolService = protocolService;
         this.ductRegister = ductRegister;
         this.playerSettingsService = playerSettingsService;
+        this.syncCommandBuffer = syncCommandBuffer;
+        this.loadedChunkService = loadedChunkService;
         this.ducts = new ConcurrentHashMap<>();
         this.playerDucts = new ConcurrentHashMap<>();
     }
 
+    /**
+     * THREAD-SAFE
+     */
+    public LoadedChunkSet getLoadedChunks(World world) {
+        return loadedChunkService.getLoadedChunks(world);
+    }
+
     public ConcurrentHashMap<World, ConcurrentSkipListMap<BlockLocation, Duct>> getDucts() {
         return ducts;
     }
@@ -85,10 +100,12 @@ public class GlobalDuctManager {
 
     public void registerDuct(Duct duct) {
         getDucts(duct.getWorld()).put(duct.getBlockLoc(), duct);
+        duct.getDuctType().getBaseDuctType().getDuctManager().notifyDuctRegistered(duct);
     }
 
     public void unregisterDuct(Duct duct) {
         getDucts(duct.getWorld()).remove(duct.getBlockLoc());
+        duct.getDuctType().getBaseDuctType().getDuctManager().notifyDuctUnregistered(duct);
     }
 
     public void registerDuctInRenderSystems(Duct duct, boolean updateForPlayers) {
@@ -163,11 +180,9 @@ public class GlobalDuctManager {
 
     public void playDuctDestroyActions(Duct duct, Player destroyer) {
         List<ItemStack> dropItems = duct.destroyed(transportPipes, duct.getDuctType().getBaseDuctType().getDuctManager(), destroyer);
-        transportPipes.runTaskSync(() -> {
-            for (ItemStack is : dropItems) {
-                duct.getWorld().dropItem(duct.getBlockLoc().toLocation(duct.getWorld()), is);
-            }
-        });
+        if (!dropItems.isEmpty()) {
+            syncCommandBuffer.add(new DropItemsCommand(duct.getWorld(), duct.getBlockLoc(), dropItems));
+        }
     }
 
     /**
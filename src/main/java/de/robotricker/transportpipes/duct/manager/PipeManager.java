@@ -1,7 +1,9 @@
 package de.robotricker.transportpipes.duct.manager;
 
 import de.robotricker.transportpipes.PlayerSettingsService;
+import de.robotricker.transportpipes.TickRateService;
 import de.robotricker.transportpipes.TransportPipes;
+import de.robotricker.transportpipes.WorldTickRate;
 import de.robotricker.transportpipes.api.TransportPipesContainer;
 import de.robotricker.transportpipes.config.GeneralConf;
 import de.robotricker.transportpipes.config.LangConf;
@@ -10,6 +12,14 @@ import de.robotricker.transportpipes.duct.Duct;
 import de.robotricker.transportpipes.duct.DuctRegister;
 import de.robotricker.transportpipes.duct.pipe.Pipe;
 import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.duct.pipe.items.RouteHistory;
+import de.robotricker.transportpipes.duct.pipe.network.HiddenItemRouter;
+import de.robotricker.transportpipes.duct.pipe.network.ItemMovementEngine;
+import de.robotricker.transportpipes.duct.pipe.network.PipeNetwork;
+import de.robotricker.transportpipes.duct.pipe.network.PipeNetworkService;
+import de.robotricker.transportpipes.duct.sync.SyncBigTickExecutor;
+import de.robotricker.transportpipes.duct.sync.SyncCommand;
+import de.robotricker.transportpipes.duct.sync.SyncCommandBuffer;
 import de.robotricker.transportpipes.duct.types.BaseDuctType;
 import de.robotricker.transportpipes.duct.types.DuctType;
 import de.robotricker.transportpipes.duct.types.pipetype.ColoredPipeType;
@@ -32,9 +42,20 @@ import java.util.concurrent.ConcurrentSkipListMap;
 public class PipeManager extends DuctManager<Pipe> {
 
     private static final long BIG_TICK_COUNT = 10;
+    /**
+     * LOD: networks switch back to the full simulation this many blocks before they get into the render distance of a
+     * player
+     */
+    private static final double LOD_VIEW_MARGIN = 16;
+    private static final double[] NO_LOD_VIEWERS = new double[0];
 
     private final PlayerSettingsService playerSettingsService;
     private final GeneralConf generalConf;
+    private final PipeNetworkService pipeNetworkService;
+    private final SyncCommandBuffer syncCommandBuffer;
+    private final SyncBigTickExecutor syncBigTickExecutor;
+    private final TickRateService tickRateService;
+    private final HiddenItemRouter hiddenItemRouter;
 
     /**
      * ThreadSafe
@@ -48,16 +69,19 @@ public class PipeManager extends DuctManager<Pipe> {
 
     private ShapedRecipe wrenchRecipe;
 
-    private long tickCounter;
-
     @Inject
-    public PipeManager(TransportPipes transportPipes, DuctRegister ductRegister, GlobalDuctManager globalDuctManager, ProtocolService protocolService, ItemService itemService, PlayerSettingsService playerSettingsService, GeneralConf generalConf) {
+    public PipeManager(TransportPipes transportPipes, DuctRegister ductRegister, GlobalDuctManager globalDuctManager, ProtocolService protocolService, ItemService itemService, PlayerSettingsService playerSettingsService, GeneralConf generalConf, PipeNetworkService pipeNetworkService, SyncCommandBuffer syncCommandBuffer, SyncBigTickExecutor syncBigTickExecutor, TickRateService tickRateService) {
         super(transportPipes, ductRegister, globalDuctManager, protocolService, itemService);
         this.playerSettingsService = playerSettingsService;
         this.generalConf = generalConf;
+        this.pipeNetworkService = pipeNetworkService;
+        this.syncCommandBuffer = syncCommandBuffer;
+        this.syncBigTickExecutor = syncBigTickExecutor;
+        this.tickRateService = tickRateService;
+        this.hiddenItemRouter = new HiddenItemRouter();
+        RouteHistory.setMaxEntries(generalConf.getMaxRouteHistoryPipes());
         playerItems = new ConcurrentHashMap<>();
         containers = new ConcurrentHashMap<>();
-        tickCounter = 0;
     }
 
     public ConcurrentHashMap<World, ConcurrentSkipListMap<BlockLocation, TransportPipesContainer>> getContainers() {
@@ -77,8 +101,19 @@ public class PipeManager extends DuctManager<Pipe> {
         return getContainerAtLoc(location.getWorld(), new BlockLocation(location));
     }
 
+    @Override
+    public void notifyDuctRegistered(Duct duct) {
+        pipeNetworkService.markDirty((Pipe) duct);
+    }
+
+    @Override
+    public void notifyDuctUnregistered(Duct duct) {
+        pipeNetworkService.markDirty((Pipe) duct);
+    }
+
     @Override
     public void updateNonDuctConnections(Duct duct) {
+        pipeNetworkService.markDirty((Pipe) duct);
         Pipe pipe = (Pipe) duct;
         pipe.getContainerConnections().clear();
         for (TPDirection tpDir : TPDirection.values()) {
@@ -181,50 +216,151 @@ public class PipeManager extends DuctManager<Pipe> {
 
     @Override
     public void tick() {
-        tickCounter++;
-        tickCounter %= BIG_TICK_COUNT;
-        boolean bigTick = tickCounter == 0;
-
-        if(bigTick) {
-            transportPipes.runTaskSync(() -> {
-                Set<World> worlds = globalDuctManager.getDucts().keySet();
-                for (World world : worlds) {
-                    ConcurrentSkipListMap<BlockLocation, Duct> ductMap = globalDuctManager.getDucts().get(world);
-                    if (ductMap != null) {
-                        for (Duct duct : ductMap.values()) {
-                            if (duct instanceof Pipe && duct.isInLoadedChunk()) {
-                                duct.syncBigTick(this);
-                            }
-                        }
-                    }
-                }
-            });
-        }
-
         Set<World> worlds = globalDuctManager.getDucts().keySet();
+        pipeNetworkService.retainWorlds(worlds);
+        hiddenItemRouter.retainWorlds(worlds);
+        tickRateService.getWorldTickRates().keySet().retainAll(worlds);
+
+        // every world is only ticked as often as its tick rate allows
+        List<World> tickedWorlds = new ArrayList<>();
+        Set<World> bigTickWorlds = new HashSet<>();
+        List<PipeNetwork> networks = new ArrayList<>();
+        List<SyncCommand> syncCommands = new ArrayList<>();
         for (World world : worlds) {
-            ConcurrentSkipListMap<BlockLocation, Duct> ductMap = globalDuctManager.getDucts().get(world);
-            if (ductMap != null) {
-                for (Duct duct : ductMap.values()) {
-                    if (duct instanceof Pipe && duct.isInLoadedChunk()) {
-                        duct.tick(bigTick, transportPipes, this, generalConf);
-                    }
+            WorldTickRate worldTickRate = tickRateService.getWorldTickRate(world);
+            if (!worldTickRate.beginTick()) {
+                continue;
+            }
+            tickedWorlds.add(world);
+            if (worldTickRate.getWorldTick() % BIG_TICK_COUNT == 0) {
+                bigTickWorlds.add(world);
+            }
+            double[] lodViewers;
+            if (isHiddenItemWorld(world)) {
+                // extracted items are routed to their destination at once, the items which still move are always
+                // simulated with LOD because nobody sees them
+                hiddenItemRouter.tick(world, worldTickRate.getWorldTick(), transportPipes, this, syncCommands);
+                lodViewers = NO_LOD_VIEWERS;
+            }
+            else {
+                lodViewers = generalConf.isLodSimulationEnabled() ? getLodViewers(world) : null;
+            }
+            for (PipeNetwork network : pipeNetworkService.getNetworks(world)) {
+                // dormant networks and networks without active pipes and item events are skipped entirely
+                if (network.isDormant()) {
+                    continue;
+                }
+                network.updateLod(lodViewers, worldTickRate.getWorldTick(), this);
+                if (network.updateActivePipes()) {
+                    networks.add(network);
                 }
-                for (Duct duct : ductMap.values()) {
-                    if (duct instanceof Pipe && duct.isInLoadedChunk()) {
-                        duct.postTick(bigTick, transportPipes, this, generalConf);
-                    }
+            }
+        }
+
+        // every tick phase is run for all networks in parallel, the buffered outside effects of the networks are applied
+        // in network order in between
+        pipeNetworkService.forEachNetwork(networks, network -> {
+            long start = System.nanoTime();
+            network.tick(bigTickWorlds.contains(network.getWorld()), transportPipes, this, generalConf);
+            tickRateService.addCostNanos(network.getWorld(), System.nanoTime() - start);
+        });
+        // the networks which receive items from other networks take part in the post tick even if they had no active pipe
+        List<PipeNetwork> activatedNetworks = new ArrayList<>();
+        for (PipeNetwork network : networks) {
+            network.applyHandOffs(activatedNetworks);
+        }
+        networks.addAll(activatedNetworks);
+        pipeNetworkService.forEachNetwork(networks, network -> {
+            long start = System.nanoTime();
+            network.postTick(bigTickWorlds.contains(network.getWorld()), transportPipes, this, generalConf);
+            tickRateService.addCostNanos(network.getWorld(), System.nanoTime() - start);
+        });
+
+        if (!bigTickWorlds.isEmpty()) {
+            Map<World, List<Pipe>> activePipes = new HashMap<>();
+            for (PipeNetwork network : networks) {
+                if (bigTickWorlds.contains(network.getWorld())) {
+                    network.collectActivePipes(activePipes.computeIfAbsent(network.getWorld(), w -> new ArrayList<>()));
                 }
             }
+            for (Map.Entry<World, List<Pipe>> entry : activePipes.entrySet()) {
+                // a slowed down world has got more time for its sync big ticks
+                long bigTickCount = BIG_TICK_COUNT * tickRateService.getWorldTickRate(entry.getKey()).getRateDivisor();
+                syncBigTickExecutor.submit(this, entry.getValue(), bigTickCount);
+            }
+        }
+
+        for (PipeNetwork network : networks) {
+            network.drainSyncCommands(syncCommands);
+        }
+        syncCommandBuffer.addAll(syncCommands);
+
+        for (World world : tickedWorlds) {
+            tickRateService.endWorldTick(world);
         }
 
     }
 
+    /**
+     * LOD: the position and view distance (x, y, z, distance) of all players in the given world who can see pipe items
+     */
+    private double[] getLodViewers(World world) {
+        List<Player> players = WorldUtils.getPlayerList(world);
+        double[] viewers = new double[players.size() * 4];
+        int length = 0;
+        for (Player player : players) {
+            PlayerSettingsConf conf = playerSettingsService.getOrCreateSettingsConf(player);
+            if (!conf.isShowItems()) {
+                continue;
+            }
+            Location location = player.getLocation();
+            viewers[length++] = location.getX();
+            viewers[length++] = location.getY();
+            viewers[length++] = location.getZ();
+            viewers[length++] = conf.getRenderDistance() + LOD_VIEW_MARGIN;
+        }
+        return Arrays.copyOf(viewers, length);
+    }
+
+    public SyncCommandBuffer getSyncCommandBuffer() {
+        return syncCommandBuffer;
+    }
+
+    /**
+     * counts all ticks of the given world since the start
+     */
+    public long getCurrentTick(World world) {
+        return tickRateService.getWorldTickRate(world).getWorldTick();
+    }
+
+    public GeneralConf getGeneralConf() {
+        return generalConf;
+    }
+
+    public boolean isFlowControlEnabled() {
+        return generalConf.isFlowControlEnabled();
+    }
+
+    /**
+     * whether the pipe items of the given world are never shown to players, so they are only routed from pipe to pipe
+     * without any armor stands or packets
+     */
+    public boolean isHiddenItemWorld(World world) {
+        return generalConf.getHiddenItemWorlds().contains(world.getName());
+    }
+
+    public ItemMovementEngine getItemMovementEngine() {
+        return pipeNetworkService.getItemMovementEngine();
+    }
+
     public Set<PipeItem> getPlayerPipeItems(Player player) {
         return playerItems.computeIfAbsent(player, p -> ConcurrentHashMap.newKeySet());
     }
 
     public void spawnPipeItem(PipeItem pipeItem) {
+        if (isHiddenItemWorld(pipeItem.getWorld())) {
+            return;
+        }
         List<Player> playerList = WorldUtils.getPlayerList(pipeItem.getWorld());
         for (Player player : playerList) {
             PlayerSettingsConf conf = playerSettingsService.getOrCreateSettingsConf(player);
@@ -236,6 +372,14 @@ public class PipeManager extends DuctManager<Pipe> {
         }
     }
 
+    /**
+     * HIDDEN ITEMS: THREAD-SAFE: routes the given item, which was extracted into the given pipe of a hidden item world,
+     * to its destination instead of moving it through the pipes
+     */
+    public void routeHiddenItem(Pipe pipe, PipeItem pipeItem) {
+        hiddenItemRouter.addExtractedItem(pipe, pipeItem);
+    }
+
     public void putPipeItemInPipe(PipeItem pipeItem) {
         Pipe pipeAtBlockLoc = (Pipe) globalDuctManager.getDuctAtLoc(pipeItem.getWorld(), pipeItem.getBlockLoc());
         if (pipeAtBlockLoc == null) {
@@ -245,10 +389,13 @@ public class PipeManager extends DuctManager<Pipe> {
     }
 
     public void updatePipeItemPosition(PipeItem pipeItem) {
-        List<Player> playerList = WorldUtils.getPlayerList(pipeItem.getWorld());
-        for (Player p : playerList) {
-            if (getPlayerPipeItems(p).contains(pipeItem)) {
-                protocolService.updatePipeItem(p, pipeItem);
+        if (isHiddenItemWorld(pipeItem.getWorld())) {
+            return;
+        }
+        // only the players who got the item spawned can see it, so there is no need to collect the players of the world
+        for (Map.Entry<Player, Set<PipeItem>> entry : playerItems.entrySet()) {
+            if (entry.getValue().contains(pipeItem)) {
+                protocolService.updatePipeItem(entry.getKey(), pipeItem);
             }
         }
     }
@@ -265,7 +412,7 @@ public class PipeManager extends DuctManager<Pipe> {
     @Override
     public void notifyDuctShown(Duct duct, Player p) {
         super.notifyDuctShown(duct, p);
-        if (!playerSettingsService.getOrCreateSettingsConf(p).isShowItems()) {
+        if (!playerSettingsService.getOrCreateSettingsConf(p).isShowItems() || isHiddenItemWorld(duct.getWorld())) {
             return;
         }
         Pipe pipe = (Pipe) duct;
@@ -8,6 +8,7 @@ import de.robotricker.transportpipes.duct.manager.GlobalDuctManager;
 import de.robotricker.transportpipes.duct.manager.PipeManager;
 import de.robotricker.transportpipes.duct.pipe.filter.ItemData;
 import de.robotricker.transportpipes.duct.pipe.filter.ItemDistributorService;
+import de.robotricker.transportpipes.duct.pipe.filter.ItemKey;
 import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
 import de.robotricker.transportpipes.duct.types.DuctType;
 import de.robotricker.transportpipes.inventory.DuctSettingsInventory;
@@ -41,6 +42,11 @@ public class CraftingPipe extends Pipe {
         necessaryIngredients = new ArrayList<>();
     }
 
+    @Override
+    public boolean hasPeriodicWork() {
+        return true;
+    }
+
     @Override
     public void tick(boolean bigTick, TransportPipes transportPipes, DuctManager<? extends Duct> ductManager, GeneralConf generalConf) {
         super.tick(bigTick, transportPipes, ductManager, generalConf);
@@ -49,6 +55,29 @@ public class CraftingPipe extends Pipe {
         }
     }
 
+    @Override
+    public boolean canCarryItemTrains() {
+        // every item is collected for the recipe on its own
+        return false;
+    }
+
+    @Override
+    public int getRoutingExits(TPDirection movingDir) {
+        // only the overflow of the recipe leaves through the output
+        TPDirection outputDir = this.outputDir;
+        return outputDir != null ? getConnectionsMask() & (1 << outputDir.ordinal()) : 0;
+    }
+
+    @Override
+    public boolean isRoutingSink() {
+        return true;
+    }
+
+    @Override
+    public boolean acceptsRoutedItem(PipeItem pipeItem) {
+        return spaceForItem(pipeItem.getItemKey()) > 0;
+    }
+
     @Override
     protected Map<TPDirection, Integer> calculateItemDistribution(PipeItem pipeItem, TPDirection movingDir, List<TPDirection> dirs, TransportPipes transportPipes) {
         ItemStack overflow = addCachedItem(pipeItem.getItem(), transportPipes);
@@ -100,10 +129,7 @@ public class CraftingPipe extends Pipe {
             // update real cachedItems list
             this.cachedItems = cachedItems;
 
-            transportPipes.runTaskSync(() -> {
-                settingsInv.save(null);
-                settingsInv.populate();
-            });
+            pipeManager.getSyncCommandBuffer().refreshSettings(settingsInv);
 
             // output result item
             PipeItem pipeItem = new PipeItem(recipe.getResult().clone(), getWorld(), getBlockLoc(), outputDir);
@@ -130,15 +156,15 @@ public class CraftingPipe extends Pipe {
         }
     }
 
-    public int spaceForItem(ItemData data) {
+    public int spaceForItem(ItemKey itemKey) {
         int space = 0;
 
         for (int i = 0; i < 9; i++) {
             if (i >= cachedItems.size()) {
-                space += data.toItemStack().getMaxStackSize();
+                space += itemKey.getMaxStackSize();
             } else {
                 ItemStack item = cachedItems.get(i);
-                if (item.isSimilar(data.toItemStack()) && item.getAmount() < item.getMaxStackSize()) {
+                if (item.getAmount() < item.getMaxStackSize() && itemKey.isKeyOf(item)) {
                     space += item.getMaxStackSize() - item.getAmount();
                 }
             }
@@ -156,6 +182,7 @@ public class CraftingPipe extends Pipe {
 
     public void setOutputDir(TPDirection outputDir) {
         this.outputDir = outputDir;
+        invalidateRouting();
     }
 
     public void setRecipe(Recipe recipe) {
@@ -189,10 +216,11 @@ public class CraftingPipe extends Pipe {
     }
 
     public ItemStack addCachedItem(ItemStack item, TransportPipes transportPipes) {
+        ItemKey itemKey = item != null ? ItemKey.of(item) : null;
         for (RecipeChoice choice : necessaryIngredients) {
             if (item != null && choice.test(item)) {
                 for (ItemStack cachedItem : cachedItems) {
-                    if (cachedItem.isSimilar(item)) {
+                    if (itemKey.isKeyOf(cachedItem)) {
                         int cachedItemAmount = cachedItem.getAmount();
                         cachedItem.setAmount(Math.min(cachedItem.getMaxStackSize(), cachedItemAmount + item.getAmount()));
                         int overflow = cachedItemAmount + item.getAmount() - cachedItem.getMaxStackSize();
@@ -211,10 +239,7 @@ public class CraftingPipe extends Pipe {
             }
         }
 
-        transportPipes.runTaskSync(() -> {
-            settingsInv.save(null);
-            settingsInv.populate();
-        });
+        getPipeManager().getSyncCommandBuffer().refreshSettings(settingsInv);
         return item;
     }
 
@@ -233,6 +258,7 @@ public class CraftingPipe extends Pipe {
             } while (!connections.contains(outputDir));
         }
         if (oldOutputDirection != outputDir) {
+            invalidateRouting();
             settingsInv.populate();
         }
     }
@@ -308,7 +334,7 @@ public class CraftingPipe extends Pipe {
             for (int i = 0; i < 9; i++) {
                 ItemData id = recipeItems[i];
                 if (id != null) {
-                    items.add(id.toItemStack().clone());
+                    items.add(id.toItemStack());
                 }
             }
             for (ItemStack cachedItem : cachedItems) {
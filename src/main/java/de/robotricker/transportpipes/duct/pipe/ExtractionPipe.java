@@ -12,6 +12,7 @@ import de.robotricker.transportpipes.duct.pipe.extractionpipe.ExtractMode;
 import de.robotricker.transportpipes.duct.pipe.filter.ItemDistributorService;
 import de.robotricker.transportpipes.duct.pipe.filter.ItemFilter;
 import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.duct.pipe.network.PipeNetwork;
 import de.robotricker.transportpipes.duct.types.DuctType;
 import de.robotricker.transportpipes.inventory.DuctSettingsInventory;
 import de.robotricker.transportpipes.items.ItemService;
@@ -37,6 +38,12 @@ public class ExtractionPipe extends Pipe {
     private ExtractAmount extractAmount;
     private ExtractMode extractMode;
     private ItemFilter itemFilter;
+    /**
+     * ITEM TRAINS: the train which left this pipe last and the tick at which its last car was extracted, only accessed
+     * by the thread which ticks this pipe
+     */
+    private PipeItem lastItemTrain;
+    private long lastItemTrainTick;
 
     public ExtractionPipe(DuctType ductType, BlockLocation blockLoc, World world, Chunk chunk, DuctSettingsInventory settingsInv, GlobalDuctManager globalDuctManager, ItemDistributorService itemDistributor) {
         super(ductType, blockLoc, world, chunk, settingsInv, globalDuctManager, itemDistributor);
@@ -47,6 +54,11 @@ public class ExtractionPipe extends Pipe {
         this.itemFilter = new ItemFilter();
     }
 
+    @Override
+    public boolean hasPeriodicWork() {
+        return true;
+    }
+
     @Override
     public void syncBigTick(DuctManager<? extends Duct> ductManager) {
         super.syncBigTick(ductManager);
@@ -57,6 +69,11 @@ public class ExtractionPipe extends Pipe {
             return;
         }
 
+        // with flow control, nothing is extracted as long as the items can't leave this pipe
+        if (pipeManager.isFlowControlEnabled() && getCredits(pipeManager.getGeneralConf().getMaxItemsPerPipe()) <= 0) {
+            return;
+        }
+
         //extract item
         TransportPipesContainer container = pipeManager.getContainerAtLoc(getWorld(), getBlockLoc().getNeighbor(extractDirection));
         if (container != null) {
@@ -69,13 +86,58 @@ public class ExtractionPipe extends Pipe {
             ItemStack item = container.extractItem(extractDirection, extractAmount.getAmount(), itemFilter);
             if (item != null) {
                 PipeItem pipeItem = new PipeItem(item, getWorld(), getBlockLoc(), extractDirection.getOpposite(), getBlockLoc(), extractMode);
-                pipeManager.spawnPipeItem(pipeItem);
+                if (pipeManager.isHiddenItemWorld(getWorld())) {
+                    pipeManager.routeHiddenItem(this, pipeItem);
+                    return;
+                }
+                // with item trains, the item is only spawned if it doesn't become part of a train
+                if (!pipeManager.getGeneralConf().isItemTrainsEnabled()) {
+                    pipeManager.spawnPipeItem(pipeItem);
+                }
                 pipeManager.putPipeItemInPipe(pipeItem);
             }
         }
 
     }
 
+    /**
+     * ITEM TRAINS: items extracted by this pipe are appended to the train which left this pipe before, as long as that
+     * train didn't have to split up yet and the items follow each other with the same spacing
+     */
+    @Override
+    protected boolean addToItemTrain(PipeItem futureItem, PipeManager pipeManager) {
+        if (!pipeManager.getGeneralConf().isItemTrainsEnabled() || !getBlockLoc().equals(futureItem.getSourceLoc()) || futureItem.getTrainCars() > 1) {
+            return false;
+        }
+        long currentTick = pipeManager.getCurrentTick(getWorld());
+        PipeItem itemTrain = lastItemTrain;
+        Pipe trainPipe = itemTrain != null && canCarryItemTrains() ? getTrainPipe(itemTrain) : null;
+        if (trainPipe != null && trainPipe.addTrainCar(itemTrain, futureItem, currentTick - lastItemTrainTick)) {
+            lastItemTrainTick = currentTick;
+            return true;
+        }
+        // the item starts the next train
+        lastItemTrain = futureItem;
+        lastItemTrainTick = currentTick;
+        pipeManager.spawnPipeItem(futureItem);
+        return false;
+    }
+
+    /**
+     * ITEM TRAINS: the pipe of this pipe's network the given train is moving through, null if the train was dropped,
+     * despawned or carried into another network. Such trains don't get any more cars.
+     */
+    private Pipe getTrainPipe(PipeItem itemTrain) {
+        PipeNetwork network = getNetwork();
+        if (network != null
+                && globalDuctManager.getDuctAtLoc(getWorld(), itemTrain.getBlockLoc()) instanceof Pipe pipe
+                && pipe.getNetwork() == network
+                && pipe.carriesItem(itemTrain)) {
+            return pipe;
+        }
+        return null;
+    }
+
     public void updateExtractDirection(boolean cycle) {
         TPDirection oldExtractDirection = getExtractDirection();
         Map<TPDirection, TransportPipesContainer> containerConnections = getContainerConnections();
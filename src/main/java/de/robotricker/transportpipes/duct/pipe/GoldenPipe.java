@@ -5,9 +5,10 @@ import de.robotricker.transportpipes.config.LangConf;
 import de.robotricker.transportpipes.duct.Duct;
 import de.robotricker.transportpipes.duct.manager.DuctManager;
 import de.robotricker.transportpipes.duct.manager.GlobalDuctManager;
-import de.robotricker.transportpipes.duct.pipe.filter.FilterResponse;
+import de.robotricker.transportpipes.duct.pipe.filter.FilterMode;
 import de.robotricker.transportpipes.duct.pipe.filter.ItemDistributorService;
 import de.robotricker.transportpipes.duct.pipe.filter.ItemFilter;
+import de.robotricker.transportpipes.duct.pipe.filter.ItemKey;
 import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
 import de.robotricker.transportpipes.duct.types.DuctType;
 import de.robotricker.transportpipes.inventory.DuctSettingsInventory;
@@ -22,14 +23,32 @@ import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GoldenPipe extends Pipe {
 
+    private static final int MAX_CACHED_DECISIONS = 256;
+
     private final ItemFilter[] itemFilters;
+    /**
+     * the filter weights of already sorted items. Replaced by an empty map as soon as the filters or connections
+     * change, so a decision which is calculated at the same time ends up in the old map.
+     */
+    private volatile Map<SortingKey, SortingDecision> sortingCache = new ConcurrentHashMap<>();
+
+    private record SortingKey(ItemKey itemKey, TPDirection movingDir, int dirsMask) {
+    }
+
+    /**
+     * the weights of the directions whose filters contain items and of all directions, never modified
+     */
+    private record SortingDecision(Map<TPDirection, Integer> weightsWithItems, Map<TPDirection, Integer> allWeights) {
+    }
 
     public GoldenPipe(DuctType ductType, BlockLocation blockLoc, World world, Chunk chunk, DuctSettingsInventory settingsInv, GlobalDuctManager globalDuctManager, ItemDistributorService itemDistributor) {
         super(ductType, blockLoc, world, chunk, settingsInv, globalDuctManager, itemDistributor);
@@ -45,34 +64,99 @@ public class GoldenPipe extends Pipe {
 
     public void setItemFilter(Color gpc, ItemFilter itemFilter) {
         itemFilters[gpc.ordinal()] = itemFilter;
+        invalidateSortingCache();
+    }
+
+    /**
+     * THREAD-SAFE has to be called after the filters of this pipe changed. The routing table gates the outputs of this
+     * pipe with the filters, so it is invalidated as well.
+     */
+    public void invalidateSortingCache() {
+        sortingCache = new ConcurrentHashMap<>();
+        invalidateRouting();
+    }
+
+    @Override
+    public boolean canCarryItemTrains() {
+        // the filters decide for every item on its own
+        return false;
+    }
+
+    @Override
+    public int getRoutingExits(TPDirection movingDir) {
+        // outputs which block everything are left out for all items, the other filters gate their outputs per item
+        int exits = super.getRoutingExits(movingDir);
+        for (Color gpc : Color.values()) {
+            if (getItemFilter(gpc).getFilterMode() == FilterMode.BLOCK_ALL) {
+                exits &= ~(1 << gpc.getDirection().ordinal());
+            }
+        }
+        return exits;
+    }
+
+    @Override
+    public boolean hasRoutingGates() {
+        return true;
+    }
+
+    @Override
+    public boolean isRoutingExitOpen(TPDirection dir, ItemKey itemKey) {
+        // outputs without weight are never chosen for the item, see calculateItemDistribution
+        return getItemFilter(Objects.requireNonNull(Color.getByDir(dir))).getWeight(itemKey) > 0;
     }
 
     @Override
     protected Map<TPDirection, Integer> calculateItemDistribution(PipeItem pipeItem, TPDirection movingDir, List<TPDirection> dirs, TransportPipes transportPipes) {
+        dirs.remove(movingDir.getOpposite());
+        int dirsMask = 0;
+        for (TPDirection dir : dirs) {
+            dirsMask |= 1 << dir.ordinal();
+        }
+
+        Map<SortingKey, SortingDecision> sortingCache = this.sortingCache;
+        SortingKey sortingKey = new SortingKey(pipeItem.getItemKey(), movingDir, dirsMask);
+        SortingDecision decision = sortingCache.get(sortingKey);
+        if (decision == null) {
+            decision = calculateSortingDecision(pipeItem.getItemKey(), dirs);
+            if (sortingCache.size() >= MAX_CACHED_DECISIONS) {
+                sortingCache.clear();
+            }
+            sortingCache.put(sortingKey, decision);
+        }
+
+        if (decision.weightsWithItems() != null) {
+            Map<TPDirection, Integer> splitMap = itemDistributor.splitPipeItem(pipeItem, decision.weightsWithItems(), this);
+            if (!splitMap.isEmpty()) {
+                return splitMap;
+            }
+        }
+        return itemDistributor.splitPipeItem(pipeItem, decision.allWeights(), this);
+    }
+
+    private SortingDecision calculateSortingDecision(ItemKey itemKey, List<TPDirection> dirs) {
         Map<TPDirection, Integer> dirAmtWithItems = new HashMap<>();
         Map<TPDirection, Integer> dirAmtWithoutItems = new HashMap<>();
-        dirs.remove(movingDir.getOpposite());
         for (TPDirection dir : dirs) {
-        	FilterResponse response = getItemFilter(Objects.requireNonNull(Color.getByDir(dir))).applyFilter(pipeItem.getItem());
-            int amount = response.getWeight();
-            if (response.hasItems()) {
-            	dirAmtWithItems.put(dir, amount);
+            int amount = getItemFilter(Objects.requireNonNull(Color.getByDir(dir))).getWeight(itemKey);
+            if (amount > 0) {
+                dirAmtWithItems.put(dir, amount);
             }
             else {
-            	dirAmtWithoutItems.put(dir, amount);
+                dirAmtWithoutItems.put(dir, amount);
             }
         }
-        if (!dirAmtWithItems.isEmpty()) {
-        	Map<TPDirection, Integer> splitMap = itemDistributor.splitPipeItem(pipeItem, dirAmtWithItems, this);
-        	if (splitMap.isEmpty()) {
-        		dirAmtWithItems.putAll(dirAmtWithoutItems);
-        		return itemDistributor.splitPipeItem(pipeItem, dirAmtWithItems, this);
-        	}
-        	else {
-        		return splitMap;
-        	}
+        if (dirAmtWithItems.isEmpty()) {
+            return new SortingDecision(null, Collections.unmodifiableMap(dirAmtWithoutItems));
         }
-        return itemDistributor.splitPipeItem(pipeItem, dirAmtWithoutItems, this);
+        Map<TPDirection, Integer> allWeights = new HashMap<>(dirAmtWithItems);
+        allWeights.putAll(dirAmtWithoutItems);
+        return new SortingDecision(Collections.unmodifiableMap(dirAmtWithItems), Collections.unmodifiableMap(allWeights));
+    }
+
+    @Override
+    public void notifyConnectionChange() {
+        super.notifyConnectionChange();
+        invalidateSortingCache();
     }
 
     @Override
@@ -116,6 +200,7 @@ public class GoldenPipe extends Pipe {
             itemFilter.loadFromNBTTag(itemFiltersTag.get(color.ordinal()), itemService);
             itemFilters[color.ordinal()] = itemFilter;
         }
+        invalidateSortingCache();
 
         settingsInv.populate();
     }
@@ -38,7 +38,7 @@ public class IcePipe extends Pipe {
     @Override
     protected Map<TPDirection, Integer> calculateItemDistribution(PipeItem pipeItem, TPDirection movingDir, List<TPDirection> dirs, TransportPipes transportPipes) {
         BlockLocation location = getBlockLoc();
-        TreeSet<TPDirection> newDirs = dirs.stream().filter(dir -> pipeItem.hasMovedDirs(location) && !pipeItem.getMovedDirs(location).contains(dir)).collect(Collectors.toCollection(TreeSet::new));
+        TreeSet<TPDirection> newDirs = dirs.stream().filter(dir -> pipeItem.hasMovedDirs(location) && !pipeItem.hasMovedDir(location, dir)).collect(Collectors.toCollection(TreeSet::new));
         if (newDirs.isEmpty()) {
             newDirs = new TreeSet<>(dirs);
         }
@@ -46,6 +46,18 @@ public class IronPipe extends Pipe {
 
     public void setCurrentOutputDirection(TPDirection currentOutputDirection) {
         this.currentOutputDirection = currentOutputDirection;
+        invalidateRouting();
+    }
+
+    @Override
+    public boolean canCarryItemTrains() {
+        // the output direction can change between two items
+        return false;
+    }
+
+    @Override
+    public int getRoutingExits(TPDirection movingDir) {
+        return getConnectionsMask() & (1 << currentOutputDirection.ordinal());
     }
 
     @Override
@@ -86,6 +98,7 @@ public class IronPipe extends Pipe {
         }
         
         if (oldOutputDirection != currentOutputDirection) {
+            invalidateRouting();
             globalDuctManager.updateDuctInRenderSystems(this, true);
         }
     }
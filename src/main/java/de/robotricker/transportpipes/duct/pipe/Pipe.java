@@ -8,7 +8,16 @@ import de.robotricker.transportpipes.duct.manager.DuctManager;
 import de.robotricker.transportpipes.duct.manager.GlobalDuctManager;
 import de.robotricker.transportpipes.duct.manager.PipeManager;
 import de.robotricker.transportpipes.duct.pipe.filter.ItemDistributorService;
+import de.robotricker.transportpipes.duct.pipe.filter.ItemKey;
+import de.robotricker.transportpipes.duct.pipe.filter.WeightedRoundRobin;
 import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.duct.pipe.items.PipeItemList;
+import de.robotricker.transportpipes.duct.pipe.items.PipeItemMergeIndex;
+import de.robotricker.transportpipes.duct.pipe.network.ItemMovementEngine;
+import de.robotricker.transportpipes.duct.pipe.network.PipeNetwork;
+import de.robotricker.transportpipes.duct.sync.ContainerInsertCommand;
+import de.robotricker.transportpipes.duct.sync.RerouteCommand;
+import de.robotricker.transportpipes.duct.sync.SyncCommand;
 import de.robotricker.transportpipes.duct.types.DuctType;
 import de.robotricker.transportpipes.duct.types.pipetype.PipeType;
 import de.robotricker.transportpipes.inventory.DuctSettingsInventory;
@@ -27,13 +36,20 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Pipe extends Duct {
 
 	/**
-	 * THREAD-SAFE contains all the items that are inside this pipe and should be updated
+	 * THREAD-SAFE the train cars of the items and future items of this pipe. The items list counts its items itself,
+	 * the future items and train cars which are added to or detached from a train are counted by this pipe.
 	 */
-	private final ConcurrentLinkedQueue<PipeItem> items;
+	private final AtomicInteger carCount;
+	/**
+	 * contains all the items that are inside this pipe and should be updated. Only modified by the thread which ticks
+	 * this pipe, other threads put their items into the future items.
+	 */
+	private final PipeItemList items;
 	/**
 	 * THREAD-SAFE contains all the items that are just put inside this pipe and should be updated and put into the
 	 * items list the next tick
@@ -50,16 +66,47 @@ public class Pipe extends Duct {
 	 * pipe.
 	 */
 	private final ConcurrentLinkedDeque<PipeItem> unloadedItems;
+	/**
+	 * HIDDEN ITEMS: THREAD-SAFE items which were routed through the network at once and wait inside this pipe until
+	 * their arrival tick. They are saved and dropped like the other items of this pipe.
+	 */
+	private final Set<PipeItem> routedItems;
 
 	final ItemDistributorService itemDistributor;
+	/**
+	 * THREAD-SAFE the state of the round-robin which splits the items arriving in the middle of this pipe
+	 */
+	private final WeightedRoundRobin itemDistribution;
 	private final ConcurrentHashMap<TPDirection, TransportPipesContainer> connectedContainers;
 
+	/**
+	 * the network this pipe got assigned to by the last network rebuild
+	 */
+	private volatile PipeNetwork network;
+	private int networkIndex;
+	/**
+	 * whether this pipe is inside the active set of its network. Only active pipes get ticked.
+	 */
+	private volatile boolean awake;
+	/**
+	 * EVENT ENGINE: the tick of the event this pipe is queued with inside its network, only accessed by the thread
+	 * which ticks the network
+	 */
+	private long scheduledEventTick = Long.MAX_VALUE;
+	/**
+	 * whether this pipe is queued inside the SyncBigTickExecutor
+	 */
+	private volatile boolean syncBigTickPending;
+
 	public Pipe(DuctType ductType, BlockLocation blockLoc, World world, Chunk chunk, DuctSettingsInventory settingsInv, GlobalDuctManager globalDuctManager, ItemDistributorService itemDistributor) {
 		super(ductType, blockLoc, world, chunk, settingsInv, globalDuctManager);
-		this.items = new ConcurrentLinkedQueue<>();
+		this.carCount = new AtomicInteger();
+		this.items = new PipeItemList(carCount);
 		this.futureItems = new ConcurrentLinkedQueue<>();
 		this.unloadedItems = new ConcurrentLinkedDeque<>();
+		this.routedItems = ConcurrentHashMap.newKeySet();
 		this.itemDistributor = itemDistributor;
+		this.itemDistribution = new WeightedRoundRobin();
 
 		this.connectedContainers = new ConcurrentHashMap<>();
 	}
@@ -75,7 +122,144 @@ public class Pipe extends Duct {
 		return allConnections;
 	}
 
-	public ConcurrentLinkedQueue<PipeItem> getItems() {
+	/**
+	 * @return whether an item can choose between more than one direction in this pipe, only these pipes record the
+	 * routing history of their items
+	 */
+	public boolean isJunction() {
+		return getDuctConnections().size() + getContainerConnections().size() > 2;
+	}
+
+	/**
+	 * ITEM TRAINS: whether item trains can pass the middle of this pipe as a whole, because every item takes the same
+	 * way. Item trains split up in all other pipes.
+	 */
+	public boolean canCarryItemTrains() {
+		return !isJunction();
+	}
+
+	/**
+	 * ITEM TRAINS: can be overridden to append the given future item to an item train which left this pipe earlier
+	 *
+	 * @return whether the future item is now part of an item train
+	 */
+	protected boolean addToItemTrain(PipeItem futureItem, PipeManager pipeManager) {
+		return false;
+	}
+
+	/**
+	 * ROUTING: the directions of all connections of this pipe as bit mask of the direction ordinals
+	 */
+	protected int getConnectionsMask() {
+		int mask = 0;
+		for (TPDirection dir : getDuctConnections().keySet()) {
+			mask |= 1 << dir.ordinal();
+		}
+		for (TPDirection dir : getContainerConnections().keySet()) {
+			mask |= 1 << dir.ordinal();
+		}
+		return mask;
+	}
+
+	/**
+	 * ROUTING: the directions an item which moves in the given direction may take after it arrived in the middle of this
+	 * pipe, as bit mask of the direction ordinals. Items don't turn around in the middle of normal pipes.
+	 */
+	public int getRoutingExits(TPDirection movingDir) {
+		return getConnectionsMask() & ~(1 << movingDir.getOpposite().ordinal());
+	}
+
+	/**
+	 * ROUTING: whether some of the {@link #getRoutingExits(TPDirection) routing exits} of this pipe only let some items
+	 * through
+	 */
+	public boolean hasRoutingGates() {
+		return false;
+	}
+
+	/**
+	 * ROUTING: THREAD-SAFE whether items with the given key may leave this pipe through the given routing exit. Only
+	 * asked if this pipe {@link #hasRoutingGates() has got gates}.
+	 */
+	public boolean isRoutingExitOpen(TPDirection dir, ItemKey itemKey) {
+		return true;
+	}
+
+	/**
+	 * ROUTING: whether items can end their way inside this pipe, like inside a container
+	 */
+	public boolean isRoutingSink() {
+		return false;
+	}
+
+	/**
+	 * ROUTING: whether this pipe takes the given item if it is a {@link #isRoutingSink() sink}
+	 */
+	public boolean acceptsRoutedItem(PipeItem pipeItem) {
+		return false;
+	}
+
+	/**
+	 * ROUTING: THREAD-SAFE has to be called after a setting of this pipe changed which changes the way of items
+	 */
+	public void invalidateRouting() {
+		PipeNetwork network = this.network;
+		if (network != null) {
+			network.invalidateRouting();
+		}
+	}
+
+	/**
+	 * FLOW CONTROL: the number of items which may still enter this pipe. A pipe only passes an item on if the next
+	 * pipe has got a credit left, otherwise the item waits at the end of the pipe.
+	 */
+	public int getCredits(int maxItemsPerPipe) {
+		return maxItemsPerPipe - countItems();
+	}
+
+	/**
+	 * THREAD-SAFE the number of items inside this pipe and about to enter it. Every car of an item train counts as its
+	 * own item, like the items would count without item trains.
+	 */
+	public int countItems() {
+		return carCount.get();
+	}
+
+	/**
+	 * ITEM TRAINS: appends the given car to the given item train, which is inside this pipe or about to enter it. Has
+	 * to be called by the thread which ticks this pipe.
+	 *
+	 * @return whether the car is now part of the train
+	 */
+	public boolean addTrainCar(PipeItem itemTrain, PipeItem car, long gap) {
+		if (!itemTrain.addTrainCar(car, gap)) {
+			return false;
+		}
+		carCount.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * ITEM TRAINS: THREAD-SAFE makes sure that no item of this pipe gets any more train cars
+	 */
+	private void sealItemTrains() {
+		items.forEach(PipeItem::sealTrain);
+		futureItems.forEach(PipeItem::sealTrain);
+		unloadedItems.forEach(PipeItem::sealTrain);
+	}
+
+	/**
+	 * ITEM TRAINS: THREAD-SAFE whether the given item is currently inside this pipe or about to enter it
+	 */
+	public boolean carriesItem(PipeItem pipeItem) {
+		return items.contains(pipeItem) || futureItems.contains(pipeItem);
+	}
+
+	public WeightedRoundRobin getItemDistribution() {
+		return itemDistribution;
+	}
+
+	public PipeItemList getItems() {
 		return items;
 	}
 
@@ -87,41 +271,160 @@ public class Pipe extends Duct {
 		return unloadedItems;
 	}
 
+	/**
+	 * HIDDEN ITEMS: THREAD-SAFE
+	 */
+	public void addRoutedItem(PipeItem pipeItem) {
+		routedItems.add(pipeItem);
+	}
+
+	/**
+	 * HIDDEN ITEMS: THREAD-SAFE
+	 *
+	 * @return false if the item is no longer inside this pipe, e.g. because the pipe was destroyed
+	 */
+	public boolean removeRoutedItem(PipeItem pipeItem) {
+		return routedItems.remove(pipeItem);
+	}
+
+	public PipeNetwork getNetwork() {
+		return network;
+	}
+
+	public int getNetworkIndex() {
+		return networkIndex;
+	}
+
+	/**
+	 * called by the network rebuild. Carries the active state of this pipe over into the new network.
+	 */
+	public void joinNetwork(PipeNetwork network, int networkIndex) {
+		this.networkIndex = networkIndex;
+		this.scheduledEventTick = Long.MAX_VALUE;
+		this.network = network;
+		if (awake || hasPendingWork()) {
+			awake = true;
+			network.wakeUp(this);
+		}
+	}
+
+	public boolean isAwake() {
+		return awake;
+	}
+
+	/**
+	 * THREAD-SAFE puts this pipe into the active set of its network, so it gets ticked again
+	 */
+	public void wakeUp() {
+		if (!awake) {
+			awake = true;
+			PipeNetwork network = this.network;
+			if (network != null) {
+				network.wakeUp(this);
+			}
+		}
+	}
+
+	/**
+	 * can be overridden by pipes which have to be ticked even if there are no items inside them
+	 */
+	public boolean hasPeriodicWork() {
+		return false;
+	}
+
+	public boolean hasPendingWork() {
+		return hasPeriodicWork() || !items.isEmpty() || !futureItems.isEmpty() || !unloadedItems.isEmpty();
+	}
+
+	/**
+	 * called by the network after the post tick. Returns true if this pipe has got nothing to do anymore and can be
+	 * removed from the active set. The awake flag is cleared before the queues are checked, so an item which is put
+	 * into this pipe concurrently either shows up in the queues or wakes this pipe up again.
+	 * <p>
+	 * With the event engine, items which are already queued as an event don't keep this pipe awake. The network keeps
+	 * running their events while its pipes sleep.
+	 */
+	public boolean trySleep(boolean eventEngine) {
+		if (hasPeriodicWork()) {
+			return false;
+		}
+		awake = false;
+		boolean pendingItems = !items.isEmpty() && (!eventEngine || scheduledEventTick == Long.MAX_VALUE);
+		if (pendingItems || !futureItems.isEmpty() || !unloadedItems.isEmpty()) {
+			awake = true;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * queues the given command to be applied inside the bukkit thread. Has to be called by the thread which ticks this
+	 * pipe. While this pipe is part of a network, the command is queued inside the network, so that the commands of all
+	 * networks get applied in a deterministic order.
+	 */
+	protected void submitSyncCommand(PipeManager pipeManager, SyncCommand command) {
+		PipeNetwork network = this.network;
+		if (network != null) {
+			network.addSyncCommand(command);
+		}
+		else {
+			pipeManager.getSyncCommandBuffer().add(command);
+		}
+	}
+
+	protected PipeManager getPipeManager() {
+		return (PipeManager) (DuctManager<? extends Duct>) getDuctType().getBaseDuctType().getDuctManager();
+	}
+
 	public void putPipeItem(PipeItem pipeItem) {
+		// counted before it is visible, so the count never drops below the real number of items
+		carCount.addAndGet(pipeItem.getTrainCars());
 		futureItems.add(pipeItem);
+		wakeUp();
 	}
 
 	double getPipeItemSpeed() {
 		return 0.125d;
 	}
 
+	public boolean isSyncBigTickPending() {
+		return syncBigTickPending;
+	}
+
+	public void setSyncBigTickPending(boolean syncBigTickPending) {
+		this.syncBigTickPending = syncBigTickPending;
+	}
+
+	public long getScheduledEventTick() {
+		return scheduledEventTick;
+	}
+
+	public void setScheduledEventTick(long scheduledEventTick) {
+		this.scheduledEventTick = scheduledEventTick;
+	}
+
 	@Override
 	public void tick(boolean bigTick, TransportPipes transportPipes, DuctManager<? extends Duct> ductManager, GeneralConf generalConf) {
 		super.tick(bigTick, transportPipes, ductManager, generalConf);
 
         // activate futureItems
-        Iterator<PipeItem> futureItemsIt = getFutureItems().iterator();
-        outer: while (futureItemsIt.hasNext()) {
-            PipeItem futureItem = futureItemsIt.next();
-            if (generalConf.getMergePipeItems()) {
-                for (PipeItem nextPipeItem : getItems()) {
-                    if (nextPipeItem.getItem().isSimilar(futureItem.getItem()) && nextPipeItem.getMovingDir() == futureItem.getMovingDir()) {
-                        nextPipeItem.getItem().setAmount(nextPipeItem.getItem().getAmount() + futureItem.getItem().getAmount());
-                        int difference = nextPipeItem.getItem().getAmount() - nextPipeItem.getItem().getMaxStackSize();
-                        if (difference <= 0) {
-                            ((PipeManager) ductManager).despawnPipeItem(futureItem);
-                            futureItemsIt.remove();
-                            continue outer;
-                        }
-                        else {
-                            nextPipeItem.getItem().setAmount(nextPipeItem.getItem().getMaxStackSize());
-                            futureItem.getItem().setAmount(difference);
-                        }
-                    }
+        if (!getFutureItems().isEmpty()) {
+            boolean merge = generalConf.getMergePipeItems();
+            PipeItemMergeIndex mergeIndex = merge ? new PipeItemMergeIndex(items) : null;
+            Iterator<PipeItem> futureItemsIt = getFutureItems().iterator();
+            while (futureItemsIt.hasNext()) {
+                PipeItem futureItem = futureItemsIt.next();
+                futureItemsIt.remove();
+                carCount.addAndGet(-futureItem.getTrainCars());
+                if ((merge && mergeIndex.merge(futureItem)) || addToItemTrain(futureItem, (PipeManager) ductManager)) {
+                    ((PipeManager) ductManager).despawnPipeItem(futureItem);
+                    continue;
+                }
+                getItems().add(futureItem);
+                if (merge) {
+                    mergeIndex.add(futureItem);
                 }
             }
-            getItems().add(futureItem);
-            futureItemsIt.remove();
         }
 
 		// extract items from unloaded list and put into next pipe
@@ -130,7 +433,13 @@ public class Pipe extends Duct {
                 PipeItem unloadedItem = getUnloadedItems().getLast();
                 Duct newPipe = globalDuctManager.getDuctAtLoc(getWorld(), unloadedItem.getBlockLoc());
                 if (newPipe instanceof Pipe && newPipe.isInLoadedChunk()) {
-                    ((Pipe) newPipe).getItems().add(unloadedItem);
+                    // the next pipe could belong to another network which is ticked at the same time
+                    if (network != null) {
+                        network.handOff((Pipe) newPipe, unloadedItem);
+                    }
+                    else {
+                        ((Pipe) newPipe).putPipeItem(unloadedItem);
+                    }
                     getUnloadedItems().removeLast();
                 }
             }
@@ -143,7 +452,11 @@ public class Pipe extends Duct {
 		super.postTick(bigTick, transportPipes, ductManager, generalConf);
         
 		PipeManager pipeManager = (PipeManager) ductManager;
-		if (items.size() > generalConf.getMaxItemsPerPipe()) {
+		// with flow control, items don't enter full pipes, so the pipe doesn't need to explode. An item train counts as a
+		// single item here, like it did before flow control.
+		if (!pipeManager.isFlowControlEnabled() && items.size() > generalConf.getMaxItemsPerPipe()) {
+			// the pipe is only destroyed later on, no train may grow until then
+			sealItemTrains();
 			transportPipes.runTaskAsync(() -> {
 				globalDuctManager.unregisterDuct(this);
 				globalDuctManager.unregisterDuctInRenderSystem(this, true);
@@ -154,144 +467,461 @@ public class Pipe extends Duct {
 			return;
 		}
 
-        List<PipeItem> copiedItems = new ArrayList<>(items);
+		if (isEventDriven(pipeManager)) {
+			// the items are moved by their events
+			scheduleItemEvents(pipeManager.getCurrentTick(getWorld()));
+			return;
+		}
+
+		long factor = (long) (getPipeItemSpeed() * RelativeLocation.PRECISION);
+		long currentTick = pipeManager.getCurrentTick(getWorld());
+		// items which are added while iterating backwards are not moved until the next tick
+		for (int i = items.size() - 1; i >= 0; i--) {
+			PipeItem pipeItem = items.get(i);
+			if (pipeItem == null) {
+				// the pipe was destroyed in the meantime
+				continue;
+			}
 
-		for (int i = copiedItems.size() - 1; i >= 0; i--) {
-			PipeItem pipeItem = copiedItems.get(i);
+			if (pipeItem.getHeldUntilTick() >= 0) {
+				if (pipeItem.getHeldUntilTick() <= currentTick) {
+					pipeItem.setHeldUntilTick(-1);
+					handleItemPosition(pipeItem, transportPipes, pipeManager);
+				}
+				continue;
+			}
+			if (pipeItem.isWaiting()) {
+				handleEndArrival(pipeItem, transportPipes, pipeManager);
+				continue;
+			}
 
-			long factor = (long) (getPipeItemSpeed() * RelativeLocation.PRECISION);
 			pipeItem.getRelativeLocation().add(pipeItem.getMovingDir().getX() * factor, pipeItem.getMovingDir().getY() * factor, pipeItem.getMovingDir().getZ() * factor);
 			pipeManager.updatePipeItemPosition(pipeItem);
 			pipeItem.resetOldRelativeLocation();
 
-			if (pipeItem.getRelativeLocation().isEquals(0.5d, 0.5d, 0.5d)) {
+			handleItemPosition(pipeItem, transportPipes, pipeManager);
+		}
+
+	}
+
+	/**
+	 * EVENT ENGINE: calculates the tick of the next point of interest for every item without an event. The given tick
+	 * is the first tick in which these items move.
+	 */
+	public void scheduleItemEvents(long firstMoveTick) {
+		for (PipeItem pipeItem : items) {
+			if (pipeItem.getEventTick() < 0) {
+				if (pipeItem.getHeldUntilTick() >= 0) {
+					pipeItem.setEventTick(Math.max(firstMoveTick, pipeItem.getHeldUntilTick()));
+					continue;
+				}
+				pipeItem.setEventTick(firstMoveTick + getTicksToNextPointOfInterest(pipeItem) - 1);
+			}
+		}
+	}
+
+	/**
+	 * the number of ticks the given item needs to reach the middle of this pipe or, if it already passed the middle, the
+	 * end of this pipe in its moving direction
+	 */
+	public long getTicksToNextPointOfInterest(PipeItem pipeItem) {
+		long factor = (long) (getPipeItemSpeed() * RelativeLocation.PRECISION);
+		return Math.max(1, (getDistanceToNextPointOfInterest(pipeItem) + factor - 1) / factor);
+	}
+
+	/**
+	 * EVENT ENGINE: returns the earliest event tick of all items or Long.MAX_VALUE if there is no scheduled item
+	 */
+	public long getNextItemEventTick() {
+		long nextEventTick = Long.MAX_VALUE;
+		for (PipeItem pipeItem : items) {
+			if (pipeItem.getEventTick() >= 0 && pipeItem.getEventTick() < nextEventTick) {
+				nextEventTick = pipeItem.getEventTick();
+			}
+		}
+		return nextEventTick;
+	}
+
+	/**
+	 * EVENT ENGINE: moves every item whose event is due directly to its point of interest and handles its arrival there.
+	 * Afterwards, the next events of these items are scheduled.
+	 */
+	public void processItemEvents(long currentTick, TransportPipes transportPipes, PipeManager pipeManager) {
+		boolean lod = network != null && network.isLod();
+
+		for (int i = items.size() - 1; i >= 0; i--) {
+			PipeItem pipeItem = items.get(i);
+			if (pipeItem == null || pipeItem.getEventTick() < 0 || pipeItem.getEventTick() > currentTick) {
+				continue;
+			}
+			pipeItem.setEventTick(-1);
+
+			if (pipeItem.getHeldUntilTick() >= 0) {
+				pipeItem.setHeldUntilTick(-1);
+				handleItemPosition(pipeItem, transportPipes, pipeManager);
+				continue;
+			}
+			if (pipeItem.isWaiting()) {
+				handleEndArrival(pipeItem, transportPipes, pipeManager);
+				continue;
+			}
+
+			moveToNextPointOfInterest(pipeItem);
+			if (!lod) {
+				pipeManager.updatePipeItemPosition(pipeItem);
+			}
+			pipeItem.resetOldRelativeLocation();
+
+			handleItemPosition(pipeItem, transportPipes, pipeManager);
+		}
 
-				// arrival at middle
+		scheduleItemEvents(currentTick + 1);
+	}
 
-				// calculate possible moving directions
-				List<TPDirection> possibleMovingDirs = new ArrayList<>(getAllConnections());
+	/**
+	 * whether the items of this pipe are moved by events, either because of the event engine or because the network of
+	 * this pipe is simulated with a lower level of detail
+	 */
+	private boolean isEventDriven(PipeManager pipeManager) {
+		PipeNetwork network = this.network;
+		return pipeManager.getItemMovementEngine() == ItemMovementEngine.EVENT || (network != null && network.isLod());
+	}
 
-				Map<TPDirection, Integer> distribution = calculateItemDistribution(pipeItem, pipeItem.getMovingDir(), possibleMovingDirs, transportPipes);
+	/**
+	 * LOD: puts every item with a scheduled event at the position it would have got with the step engine until the
+	 * given tick, so the step engine can continue to move it. Has to be called while this pipe is not ticked.
+	 */
+	public void resumeStepMovement(long currentTick) {
+		long factor = (long) (getPipeItemSpeed() * RelativeLocation.PRECISION);
+		for (PipeItem pipeItem : items) {
+			long eventTick = pipeItem.getEventTick();
+			if (eventTick < 0) {
+				continue;
+			}
+			pipeItem.setEventTick(-1);
+			if (pipeItem.isWaiting() || pipeItem.getHeldUntilTick() >= 0) {
+				continue;
+			}
+			// the item still has to move on every tick up to its event tick, an overdue item arrives in the current tick
+			long remainingSteps = Math.max(1, eventTick - currentTick + 1);
+			TPDirection movingDir = pipeItem.getMovingDir();
+			RelativeLocation relLoc = pipeItem.getRelativeLocation();
+			long pos = getMovingAxisValue(relLoc, movingDir);
+			int sign = movingDir.getX() + movingDir.getY() + movingDir.getZ();
+			long newPos = getNextPointOfInterest(pos, movingDir) - sign * remainingSteps * factor;
+			if (sign > 0 ? newPos > pos : newPos < pos) {
+				setMovingAxisValue(relLoc, movingDir, newPos);
+			}
+			pipeItem.resetOldRelativeLocation();
+		}
+		scheduledEventTick = Long.MAX_VALUE;
+		if (!items.isEmpty()) {
+			wakeUp();
+		}
+	}
+
+	/**
+	 * returns the distance of the given item to the middle of this pipe or, if it already passed the middle, to the end
+	 * of this pipe in its moving direction
+	 */
+	private long getDistanceToNextPointOfInterest(PipeItem pipeItem) {
+		TPDirection movingDir = pipeItem.getMovingDir();
+		long pos = getMovingAxisValue(pipeItem.getRelativeLocation(), movingDir);
+		return Math.abs(getNextPointOfInterest(pos, movingDir) - pos);
+	}
 
-				if (distribution == null || distribution.isEmpty()) {
-					if (distribution != null) {
-						transportPipes.runTaskSync(() -> {
+	public void moveToNextPointOfInterest(PipeItem pipeItem) {
+		TPDirection movingDir = pipeItem.getMovingDir();
+		RelativeLocation relLoc = pipeItem.getRelativeLocation();
+		setMovingAxisValue(relLoc, movingDir, getNextPointOfInterest(getMovingAxisValue(relLoc, movingDir), movingDir));
+	}
 
-                            pipeItem.removeMovedDir(getBlockLoc());
-                            Map<TPDirection, Integer> newDistribution = calculateItemDistribution(pipeItem, pipeItem.getMovingDir(), possibleMovingDirs, transportPipes);
-                            if (newDistribution.isEmpty()) {
-                                pipeItem.setMovingDir(pipeItem.getMovingDir().getOpposite());
-                            }
-                            else {
-                                pipeItem.addMovedDir(getBlockLoc(), pipeItem.getMovingDir().getOpposite());
-                            }
-						});
-					}
-					else {
+	private static void setMovingAxisValue(RelativeLocation relLoc, TPDirection movingDir, long value) {
+		if (movingDir.getX() != 0) {
+			relLoc.set(value, relLoc.getLongY(), relLoc.getLongZ());
+		}
+		else if (movingDir.getY() != 0) {
+			relLoc.set(relLoc.getLongX(), value, relLoc.getLongZ());
+		}
+		else {
+			relLoc.set(relLoc.getLongX(), relLoc.getLongY(), value);
+		}
+	}
+
+	private static long getMovingAxisValue(RelativeLocation relLoc, TPDirection movingDir) {
+		if (movingDir.getX() != 0) {
+			return relLoc.getLongX();
+		}
+		else if (movingDir.getY() != 0) {
+			return relLoc.getLongY();
+		}
+		return relLoc.getLongZ();
+	}
+
+	private static long getNextPointOfInterest(long pos, TPDirection movingDir) {
+		int sign = movingDir.getX() + movingDir.getY() + movingDir.getZ();
+		if (sign > 0) {
+			return pos < RelativeLocation.HALF ? RelativeLocation.HALF : RelativeLocation.MAX;
+		}
+		return pos > RelativeLocation.HALF ? RelativeLocation.HALF : RelativeLocation.MIN;
+	}
+
+	/**
+	 * handles a pipe item which was just moved inside this pipe, it might have arrived at the middle or at the end of
+	 * this pipe
+	 */
+	private void handleItemPosition(PipeItem pipeItem, TransportPipes transportPipes, PipeManager pipeManager) {
+		if (pipeItem.getRelativeLocation().isCenter()) {
+			handleMiddleArrival(pipeItem, transportPipes, pipeManager);
+		}
+		else if (pipeItem.getRelativeLocation().isOnBorder()) {
+			handleEndArrival(pipeItem, transportPipes, pipeManager);
+		}
+	}
+
+	private void handleMiddleArrival(PipeItem pipeItem, TransportPipes transportPipes, PipeManager pipeManager) {
+		// arrival at middle
+
+		if (!canCarryItemTrains()) {
+			pipeItem.sealTrain();
+			if (pipeItem.getTrainCars() > 1) {
+				pipeItem = releaseFirstCar(pipeItem, pipeManager);
+				items.add(pipeItem);
+				pipeManager.spawnPipeItem(pipeItem);
+			}
+		}
+
+		// calculate possible moving directions
+		List<TPDirection> possibleMovingDirs = new ArrayList<>(getAllConnections());
+
+		Map<TPDirection, Integer> distribution = calculateItemDistribution(pipeItem, pipeItem.getMovingDir(), possibleMovingDirs, transportPipes);
+
+		if (distribution == null || distribution.isEmpty()) {
+			pipeItem.sealTrain();
+			if (distribution != null) {
+				// the item waits in the middle of this pipe until its new direction got chosen inside the bukkit thread
+				items.remove(pipeItem);
+				submitSyncCommand(pipeManager, new RerouteCommand(this, pipeItem, possibleMovingDirs, transportPipes));
+				return;
+			}
+			else {
                         items.remove(pipeItem);
                         pipeManager.despawnPipeItem(pipeItem);
                         // drop item
                         //transportPipes.runTaskSync(() -> pipeItem.getWorld().dropItem(pipeItem.getBlockLoc().getNeighbor(pipeItem.getMovingDir()).toLocation(pipeItem.getWorld()), pipeItem.getItem()));
-    					continue;
-					}
-				}
+    				return;
+			}
+		}
 
-				ItemStack itemStack = pipeItem.getItem().clone();
-
-				PipeItem tempPipeItem = null;
-				BlockLocation location = getBlockLoc();
-				for (TPDirection dir : distribution.keySet()) {
-					int amount = distribution.get(dir);
-					if (tempPipeItem == null) {
-						tempPipeItem = pipeItem;
-					}
-					else {
-						tempPipeItem = new PipeItem(itemStack.clone(), getWorld(), location, dir);
-					}
-					tempPipeItem.getItem().setAmount(amount);
-					tempPipeItem.addMovedDir(location, dir);
-					tempPipeItem.setMovingDir(dir);
-					tempPipeItem.getRelativeLocation().set(0.5d, 0.5d, 0.5d);
-					tempPipeItem.resetOldRelativeLocation();
-					if (!items.contains(tempPipeItem)) {
-						items.add(tempPipeItem);
-						pipeManager.spawnPipeItem(tempPipeItem);
-					}
-				}
+		for (PipeItem tempPipeItem : splitAtMiddle(pipeItem, distribution)) {
+			if (items.add(tempPipeItem)) {
+				pipeManager.spawnPipeItem(tempPipeItem);
 			}
-			else if (pipeItem.getRelativeLocation().getDoubleX() <= 0d || pipeItem.getRelativeLocation().getDoubleY() <= 0d || pipeItem.getRelativeLocation().getDoubleZ() <= 0d
-					|| pipeItem.getRelativeLocation().getDoubleX() >= 1d || pipeItem.getRelativeLocation().getDoubleY() >= 1d || pipeItem.getRelativeLocation().getDoubleZ() >= 1d) {
-				// arrival at end of pipe
-
-				Duct duct = getDuctConnections().get(pipeItem.getMovingDir());
-				TransportPipesContainer transportPipesContainer = getContainerConnections().get(pipeItem.getMovingDir());
-
-				if (duct instanceof Pipe pipe) {
-
-					BlockLocation location = pipe.getBlockLoc();
-
-					// make pipe item ready for next pipe
-					pipeItem.setBlockLoc(location);
-					if (!pipeItem.hasSourceDir(location)) {
-						pipeItem.addSourceDir(location, pipeItem.getMovingDir().getOpposite());
-					}
-					pipeItem.addMovedDir(location, pipeItem.getMovingDir().getOpposite());
-					pipeItem.getRelativeLocation().switchValues();
-					pipeItem.resetOldRelativeLocation();
-
-					// remove from current pipe and add to new one
-					items.remove(pipeItem);
-					if (pipe.isInLoadedChunk()) {
-						pipe.putPipeItem(pipeItem);
-					}
-					else {
-						unloadedItems.add(pipeItem);
-					}
+		}
+	}
+
+	/**
+	 * sends the parts of the given item, which arrived in the middle of this pipe, on their way into the directions of
+	 * the given distribution. The first part is the given item itself.
+	 */
+	public List<PipeItem> splitAtMiddle(PipeItem pipeItem, Map<TPDirection, Integer> distribution) {
+		ItemKey itemKey = pipeItem.getItemKey();
+
+		List<PipeItem> parts = new ArrayList<>(distribution.size());
+		PipeItem tempPipeItem = null;
+		BlockLocation location = getBlockLoc();
+		boolean junction = isJunction();
+		for (TPDirection dir : distribution.keySet()) {
+			int amount = distribution.get(dir);
+			if (tempPipeItem == null) {
+				tempPipeItem = pipeItem;
+			}
+			else {
+				tempPipeItem = new PipeItem(itemKey.toItemStack(amount), getWorld(), location, dir);
+			}
+			tempPipeItem.getItem().setAmount(amount);
+			if (junction) {
+				tempPipeItem.addMovedDir(location, dir);
+			}
+			tempPipeItem.setMovingDir(dir);
+			tempPipeItem.getRelativeLocation().set(RelativeLocation.HALF, RelativeLocation.HALF, RelativeLocation.HALF);
+			tempPipeItem.resetOldRelativeLocation();
+			parts.add(tempPipeItem);
+		}
+		return parts;
+	}
+
+	/**
+	 * HIDDEN ITEMS: the distribution of the given item, which arrived in the middle of this pipe, the same way as it is
+	 * calculated for moving items
+	 */
+	public Map<TPDirection, Integer> routeAtMiddle(PipeItem pipeItem, List<TPDirection> possibleMovingDirs, TransportPipes transportPipes) {
+		return calculateItemDistribution(pipeItem, pipeItem.getMovingDir(), possibleMovingDirs, transportPipes);
+	}
+
+	/**
+	 * makes the given item, which arrived at the end of the pipe before, ready to enter this pipe
+	 */
+	public void prepareEntry(PipeItem pipeItem) {
+		BlockLocation location = getBlockLoc();
+
+		pipeItem.setBlockLoc(location);
+		if (isJunction()) {
+			if (!pipeItem.hasSourceDir(location)) {
+				pipeItem.addSourceDir(location, pipeItem.getMovingDir().getOpposite());
+			}
+			pipeItem.addMovedDir(location, pipeItem.getMovingDir().getOpposite());
+		}
+		pipeItem.getRelativeLocation().switchValues();
+		pipeItem.resetOldRelativeLocation();
+	}
+
+	/**
+	 * makes the given item, which arrived at the end of this pipe, ready to be inserted into the container at its end
+	 */
+	public void prepareContainerInsert(PipeItem pipeItem) {
+		pipeItem.setBlockLoc(getBlockLoc().getNeighbor(pipeItem.getMovingDir()));
+		pipeItem.getRelativeLocation().switchValues();
+		pipeItem.resetOldRelativeLocation();
+	}
+
+	private void handleEndArrival(PipeItem pipeItem, TransportPipes transportPipes, PipeManager pipeManager) {
+		// arrival at end of pipe
+
+		Duct duct = getDuctConnections().get(pipeItem.getMovingDir());
+		TransportPipesContainer transportPipesContainer = getContainerConnections().get(pipeItem.getMovingDir());
+		boolean flowControl = pipeManager.isFlowControlEnabled();
+
+		if (duct instanceof Pipe pipe) {
+
+			if (flowControl && pipe.isInLoadedChunk() && pipe.getCredits(pipeManager.getGeneralConf().getMaxItemsPerPipe()) <= 0) {
+				waitAtEnd(pipeItem);
+				return;
+			}
+			pipeItem.setWaiting(false);
+
+			// make pipe item ready for next pipe
+			pipe.prepareEntry(pipeItem);
+
+			// remove from current pipe and add to new one
+			items.remove(pipeItem);
+			if (pipe.isInLoadedChunk()) {
+				pipe.putPipeItem(pipeItem);
+			}
+			else {
+				pipeItem.sealTrain();
+				unloadedItems.add(pipeItem);
+			}
+		}
+		else if (transportPipesContainer != null) {
+
+			if (flowControl && transportPipesContainer.spaceForItem(pipeItem.getMovingDir(), pipeItem.getItem()) <= 0) {
+				waitAtEnd(pipeItem);
+				return;
+			}
+			pipeItem.setWaiting(false);
+			pipeItem.sealTrain();
+			if (pipeItem.getTrainCars() > 1) {
+				pipeItem = releaseFirstCar(pipeItem, pipeManager);
+			}
+
+			items.remove(pipeItem);
+			pipeManager.despawnPipeItem(pipeItem);
+
+			prepareContainerInsert(pipeItem);
+
+			submitSyncCommand(pipeManager, new ContainerInsertCommand(this, pipeItem, transportPipesContainer, pipeManager));
+		}
+		else if (flowControl) {
+			// dead ends hold the items back until something gets connected
+			waitAtEnd(pipeItem);
+		}
+		else {
+			pipeItem.sealTrain();
+			items.remove(pipeItem);
+			pipeManager.despawnPipeItem(pipeItem);
+
+			// Send items that hit a dead end back into the pipe the way they came
+			pipeItem.setMovingDir(pipeItem.getMovingDir().getOpposite());
+			pipeItem.setBlockLoc(this.getBlockLoc());
+			pipeItem.getRelativeLocation().switchValues();
+			pipeItem.resetOldRelativeLocation();
+			pipeManager.spawnPipeItem(pipeItem);
+			this.putPipeItem(pipeItem);
+		}
+	}
+
+	/**
+	 * ITEM TRAINS: lets the first car of the given item train go on alone. The remaining cars are held at the current
+	 * position of the train until the next car leaves after the train spacing, so every car arrives at the same tick as
+	 * a separate item would have.
+	 *
+	 * @return the first car, which is not part of this pipe yet
+	 */
+	private PipeItem releaseFirstCar(PipeItem train, PipeManager pipeManager) {
+		PipeItem car = train.detachFirstCar();
+		carCount.decrementAndGet();
+		train.setHeldUntilTick(pipeManager.getCurrentTick(getWorld()) + train.getTrainSpacing());
+		return car;
+	}
+
+	/**
+	 * FLOW CONTROL: keeps the given item at the end of this pipe. It tries to leave this pipe again on every tick
+	 * instead of bouncing back.
+	 */
+	private void waitAtEnd(PipeItem pipeItem) {
+		pipeItem.sealTrain();
+		if (!pipeItem.isWaiting()) {
+			pipeItem.setWaiting(true);
+			moveToNextPointOfInterest(pipeItem);
+			pipeItem.resetOldRelativeLocation();
+		}
+	}
+
+	/**
+	 * called inside the bukkit thread to insert a pipe item which left this pipe into the given container
+	 */
+	public void applyContainerInsert(PipeItem pipeItem, TransportPipesContainer container, PipeManager pipeManager) {
+		if (container.isInLoadedChunk()) {
+
+			ItemStack overflow = container.insertItem(pipeItem.getMovingDir(), pipeItem.getItem());
+			if (overflow != null) {
+				pipeItem.getItem().setAmount(overflow.getAmount());
+				if (pipeManager.isFlowControlEnabled()) {
+					// the overflow waits at the end of this pipe until the container has got space again
+					pipeItem.setWaiting(true);
 				}
 				else {
-					items.remove(pipeItem);
-					pipeManager.despawnPipeItem(pipeItem);
-
-					if (transportPipesContainer != null) {
-
-						pipeItem.setBlockLoc(getBlockLoc().getNeighbor(pipeItem.getMovingDir()));
-						pipeItem.getRelativeLocation().switchValues();
-						pipeItem.resetOldRelativeLocation();
-
-						transportPipes.runTaskSync(() -> {
-							if (transportPipesContainer.isInLoadedChunk()) {
-
-								ItemStack overflow = transportPipesContainer.insertItem(pipeItem.getMovingDir(), pipeItem.getItem());
-								if (overflow != null) {
-									// Send overflow items back into the pipe the way they came
-									pipeItem.getItem().setAmount(overflow.getAmount());
-									pipeItem.setMovingDir(pipeItem.getMovingDir().getOpposite());
-									pipeItem.setBlockLoc(this.getBlockLoc());
-									pipeItem.getRelativeLocation().switchValues();
-									pipeItem.resetOldRelativeLocation();
-									pipeManager.spawnPipeItem(pipeItem);
-									this.putPipeItem(pipeItem);
-								}
-							}
-							else {
-								unloadedItems.add(pipeItem);
-							}
-						});
-					}
-					else {
-						// Send items that hit a dead end back into the pipe the way they came
-						pipeItem.setMovingDir(pipeItem.getMovingDir().getOpposite());
-						pipeItem.setBlockLoc(this.getBlockLoc());
-						pipeItem.getRelativeLocation().switchValues();
-						pipeItem.resetOldRelativeLocation();
-						pipeManager.spawnPipeItem(pipeItem);
-						this.putPipeItem(pipeItem);
-					}
+					// Send overflow items back into the pipe the way they came
+					pipeItem.setMovingDir(pipeItem.getMovingDir().getOpposite());
 				}
+				pipeItem.setBlockLoc(this.getBlockLoc());
+				pipeItem.getRelativeLocation().switchValues();
+				pipeItem.resetOldRelativeLocation();
+				pipeManager.spawnPipeItem(pipeItem);
+				this.putPipeItem(pipeItem);
 			}
-
 		}
+		else {
+			unloadedItems.add(pipeItem);
+			wakeUp();
+		}
+	}
 
+	/**
+	 * called inside the bukkit thread for a pipe item which could not be distributed in the middle of this pipe. The
+	 * item was removed from this pipe before and is put back into it with its new direction.
+	 */
+	public void applyReroute(PipeItem pipeItem, List<TPDirection> possibleMovingDirs, TransportPipes transportPipes) {
+		pipeItem.removeMovedDir(getBlockLoc());
+		Map<TPDirection, Integer> newDistribution = calculateItemDistribution(pipeItem, pipeItem.getMovingDir(), possibleMovingDirs, transportPipes);
+		if (newDistribution == null || newDistribution.isEmpty()) {
+			pipeItem.setMovingDir(pipeItem.getMovingDir().getOpposite());
+		}
+		else if (isJunction()) {
+			pipeItem.addMovedDir(getBlockLoc(), pipeItem.getMovingDir().getOpposite());
+		}
+		putPipeItem(pipeItem);
 	}
 
 	@Override
@@ -336,6 +966,7 @@ public class Pipe extends Duct {
 	public List<ItemStack> destroyed(TransportPipes transportPipes, DuctManager<? extends Duct> ductManager, Player destroyer) {
 		List<ItemStack> dropItems = super.destroyed(transportPipes, ductManager, destroyer);
 
+		sealItemTrains();
         items.forEach(pipeItem -> {
             ((PipeManager) ductManager).despawnPipeItem(pipeItem);
             if (destroyer != null) {
@@ -343,13 +974,14 @@ public class Pipe extends Duct {
 			}
         });
         items.clear();
-        futureItems.forEach(pipeItem -> {
-            ((PipeManager) ductManager).despawnPipeItem(pipeItem);
+        PipeItem futureItem;
+        while ((futureItem = futureItems.poll()) != null) {
+            carCount.addAndGet(-futureItem.getTrainCars());
+            ((PipeManager) ductManager).despawnPipeItem(futureItem);
 			if (destroyer != null) {
-				dropItems.add(pipeItem.getItem());
+				dropItems.add(futureItem.getItem());
 			}
-        });
-        futureItems.clear();
+        }
         unloadedItems.forEach(pipeItem -> {
             ((PipeManager) ductManager).despawnPipeItem(pipeItem);
 			if (destroyer != null) {
@@ -357,6 +989,11 @@ public class Pipe extends Duct {
 			}
         });
         unloadedItems.clear();
+        for (PipeItem routedItem : routedItems) {
+			if (routedItems.remove(routedItem) && destroyer != null) {
+				dropItems.add(routedItem.getItem());
+			}
+        }
 
 		return dropItems;
 	}
@@ -373,6 +1010,8 @@ public class Pipe extends Duct {
 		List<PipeItem> accumulatedItems = new ArrayList<>();
 		accumulatedItems.addAll(getItems());
 		accumulatedItems.addAll(getFutureItems());
+		// routed items continue as moving items after a restart
+		accumulatedItems.addAll(routedItems);
 		List<PipeItem> unloadedItems = new ArrayList<>(getUnloadedItems());
 
 		ListTag<CompoundTag> accumulatedItemsListTag = new ListTag<>(CompoundTag.class);
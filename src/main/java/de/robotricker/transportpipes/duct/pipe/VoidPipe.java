@@ -22,6 +22,27 @@ public class VoidPipe extends Pipe {
         super(ductType, blockLoc, world, chunk, settingsInv, globalDuctManager, itemDistributor);
     }
 
+    @Override
+    public boolean canCarryItemTrains() {
+        // the items are destroyed
+        return false;
+    }
+
+    @Override
+    public int getRoutingExits(TPDirection movingDir) {
+        return 0;
+    }
+
+    @Override
+    public boolean isRoutingSink() {
+        return true;
+    }
+
+    @Override
+    public boolean acceptsRoutedItem(PipeItem pipeItem) {
+        return true;
+    }
+
     @Override
     protected Map<TPDirection, Integer> calculateItemDistribution(PipeItem pipeItem, TPDirection movingDir, List<TPDirection> dirs, TransportPipes transportPipes) {
         return null;
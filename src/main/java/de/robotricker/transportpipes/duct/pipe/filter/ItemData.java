@@ -2,29 +2,25 @@ package de.robotricker.transportpipes.duct.pipe.filter;
 
 import org.bukkit.inventory.ItemStack;
 
-import java.util.Objects;
-
 public class ItemData {
 
-    private final ItemStack backedItem;
+    private final ItemKey itemKey;
 
     public ItemData(ItemStack item) {
-        this.backedItem = item.clone();
-        this.backedItem.setAmount(1);
+        this.itemKey = ItemKey.of(item);
+    }
+
+    public ItemKey getItemKey() {
+        return itemKey;
     }
 
     public ItemStack toItemStack() {
-        return backedItem.clone();
+        return itemKey.toItemStack(1);
     }
 
     @Override
     public int hashCode() {
-        int hash = 1;
-
-        hash = hash * 31 + backedItem.getType().ordinal();
-        hash = hash * 31 + (backedItem.hasItemMeta() ? Objects.requireNonNull(backedItem.getItemMeta()).hashCode() : 0);
-
-        return hash;
+        return itemKey.hashCode();
     }
 
     @Override
@@ -36,14 +32,11 @@ public class ItemData {
         if (getClass() != obj.getClass())
             return false;
         ItemData other = (ItemData) obj;
-        if (backedItem == null) {
-            return other.backedItem == null;
-        } else return backedItem.isSimilar(other.backedItem);
+        return itemKey.equals(other.itemKey);
     }
 
     @Override
     public String toString() {
-        return backedItem.toString();
+        return itemKey.toString();
     }
 }
-
@@ -1,12 +1,10 @@
 package de.robotricker.transportpipes.duct.pipe.filter;
 
-import java.math.BigInteger;
 import java.util.*;
 import javax.inject.Inject;
 
-import org.bukkit.inventory.ItemStack;
-
 import de.robotricker.transportpipes.api.TransportPipesContainer;
+import de.robotricker.transportpipes.config.GeneralConf;
 import de.robotricker.transportpipes.duct.Duct;
 import de.robotricker.transportpipes.duct.DuctRegister;
 import de.robotricker.transportpipes.duct.manager.DuctManager;
@@ -16,126 +14,181 @@ import de.robotricker.transportpipes.duct.pipe.CraftingPipe;
 import de.robotricker.transportpipes.duct.pipe.Pipe;
 import de.robotricker.transportpipes.duct.pipe.extractionpipe.ExtractMode;
 import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.duct.pipe.network.PipeNetwork;
+import de.robotricker.transportpipes.duct.pipe.network.RoutingTable;
 import de.robotricker.transportpipes.location.BlockLocation;
 import de.robotricker.transportpipes.location.TPDirection;
 
 public class ItemDistributorService {
 
+    private static final TPDirection[] DIRECTIONS = TPDirection.values();
+
     @Inject
     private DuctRegister ductRegister;
     @Inject
     private GlobalDuctManager globalDuctManager;
-
-    private final Map<Pipe, Integer> pipeItemDistributionCounter;
-
-    public ItemDistributorService() {
-        this.pipeItemDistributionCounter = new HashMap<>();
-    }
+    @Inject
+    private GeneralConf generalConf;
 
     /**
-     * calculates the greatest common dividor of all abs weights and divides every weight by it.
+     * calculates the greatest common divisor of all abs weights greater than 0, 1 if there is none
      **/
-    private void reduceAbsWeights(Map<TPDirection, Integer> absWeights) {
-        BigInteger gcd = null;
-        for (TPDirection dir : absWeights.keySet()) {
-            if (absWeights.get(dir) == 0) {
-                continue;
-            }
-            if (gcd == null) {
-                gcd = BigInteger.valueOf(absWeights.get(dir));
-            } else {
-                gcd = BigInteger.valueOf(absWeights.get(dir)).gcd(gcd);
-            }
-        }
-        for (TPDirection dir : absWeights.keySet()) {
-            if (absWeights.get(dir) == 0) {
-                continue;
+    private int gcdOfAbsWeights(Map<TPDirection, Integer> absWeights) {
+        int gcd = 0;
+        for (int weight : absWeights.values()) {
+            if (weight > 0) {
+                int a = weight;
+                while (gcd != 0) {
+                    int t = a % gcd;
+                    a = gcd;
+                    gcd = t;
+                }
+                gcd = a;
             }
-            absWeights.put(dir, absWeights.get(dir) / Objects.requireNonNull(gcd).intValue());
         }
+        return gcd != 0 ? gcd : 1;
     }
 
     /**
-     * this method maps the possible directions with their free space
+     * returns how much of the given item fits into the container or crafting pipe next to the given pipe in the given
+     * direction, Integer.MAX_VALUE if there is none
      */
-    private Map<TPDirection, Integer> calculateFreeSpaceForAllDirections(ItemStack item, Collection<TPDirection> dirs, Pipe pipe) {
-        Map<TPDirection, Integer> freeSpaceMap = new HashMap<>();
-
-        Map<BlockLocation, TransportPipesContainer> containerMap = ((PipeManager) (DuctManager<? extends Duct>) ductRegister.baseDuctTypeOf("pipe").getDuctManager()).getContainers(pipe.getWorld());
-        Map<BlockLocation, Duct> ductMap = globalDuctManager.getDucts(pipe.getWorld());
+    private int calculateFreeSpace(PipeItem pipeItem, TPDirection dir, Pipe pipe, Map<BlockLocation, TransportPipesContainer> containerMap, Map<BlockLocation, Duct> ductMap) {
+        BlockLocation bl = pipe.getBlockLoc().getNeighbor(dir);
+        TransportPipesContainer container = containerMap != null ? containerMap.get(bl) : null;
+        if (container != null) {
+            // container at location
+            return container.spaceForItem(dir, pipeItem.getItem());
+        }
+        if (ductMap != null && ductMap.get(bl) instanceof CraftingPipe cp) {
+            // crafting pipe at location
+            return cp.spaceForItem(pipeItem.getItemKey());
+        }
+        return Integer.MAX_VALUE;
+    }
 
-        for (TPDirection dir : dirs) {
-            freeSpaceMap.put(dir, Integer.MAX_VALUE);
-            BlockLocation bl = pipe.getBlockLoc().getNeighbor(dir);
-            if (containerMap != null && containerMap.containsKey(bl)) {
-                // container at location
-                TransportPipesContainer container = containerMap.get(bl);
-                int freeSpace = container.spaceForItem(dir, item);
-                freeSpaceMap.put(dir, freeSpace);
-            } else if (ductMap != null && ductMap.containsKey(bl) && ductMap.get(bl) instanceof CraftingPipe cp) {
-                // crafting pipe at location
-                int freeSpace = cp.spaceForItem(new ItemData(item));
-                freeSpaceMap.put(dir, freeSpace);
+    /**
+     * ROUTING: removes the weights of all directions which don't lead to a sink with space for the given item. If no
+     * direction leads to such a sink, the weights stay as they are.
+     *
+     * @return the first direction which is left
+     */
+    private TPDirection pruneDeadEnds(PipeItem pipeItem, Map<TPDirection, Integer> absWeights, Pipe pipe, int[] weights, TPDirection firstDir) {
+        PipeNetwork network = pipe.getNetwork();
+        if (network == null) {
+            return firstDir;
+        }
+        RoutingTable routingTable = network.getRoutingTable();
+        int deadEndsMask = 0;
+        boolean anyAccepting = false;
+        for (TPDirection dir : DIRECTIONS) {
+            if (weights[dir.ordinal()] > 0) {
+                if (routingTable.leadsToAcceptingSink(pipe, dir, pipeItem)) {
+                    anyAccepting = true;
+                }
+                else {
+                    deadEndsMask |= 1 << dir.ordinal();
+                }
             }
         }
+        if (!anyAccepting || deadEndsMask == 0) {
+            return firstDir;
+        }
 
-        return freeSpaceMap;
+        TPDirection newFirstDir = null;
+        for (TPDirection dir : absWeights.keySet()) {
+            if ((deadEndsMask & (1 << dir.ordinal())) != 0) {
+                weights[dir.ordinal()] = 0;
+            }
+            else if (newFirstDir == null && weights[dir.ordinal()] > 0) {
+                newFirstDir = dir;
+            }
+        }
+        return newFirstDir;
     }
+
     public Map<TPDirection, Integer> splitPipeItem(PipeItem pipeItem, Map<TPDirection, Integer> absWeights, Pipe pipe) {
         return splitPipeItem(pipeItem, absWeights, pipe, null);
     }
 
     public Map<TPDirection, Integer> splitPipeItem(PipeItem pipeItem, Map<TPDirection, Integer> absWeights, Pipe pipe, Map<TPDirection, Integer> origWeights) {
-        ItemStack item = pipeItem.getItem();
-        Map<TPDirection, Integer> splitMap = new HashMap<>();
-        Map<TPDirection, Integer> freeSpaceMap = calculateFreeSpaceForAllDirections(item, absWeights.keySet(), pipe);
-        
-        reduceAbsWeights(absWeights);
-
-        List<TPDirection> weightsDirectionList = new ArrayList<>();
-        for (TPDirection dir : absWeights.keySet()) {
-            int absWeight = absWeights.get(dir);
-            for (int i = 1; i <= absWeight; i++) {
-                // make sure the free space of the nearby container block does not get ignored
-                if (freeSpaceMap.get(dir) >= i) {
-                    weightsDirectionList.add(dir);
-                }
+        WeightedRoundRobin itemDistribution = pipe.getItemDistribution();
+        int[] weights = itemDistribution.claimWeights();
+        try {
+            Map<TPDirection, Integer> splitMap = distribute(pipeItem, absWeights, pipe, weights);
+            if (splitMap != null) {
+                return splitMap;
             }
+        } finally {
+            itemDistribution.releaseWeights(weights);
         }
+        // return empty map so the item will be dropped
+        // if null would be returned, no item will be dropped
+        return origWeights != null ? splitPipeItem(pipeItem, origWeights, pipe, null) : Map.of();
+    }
+
+    /**
+     * @param weights the cleared weights buffer of the pipe
+     * @return null if no direction is left
+     */
+    private Map<TPDirection, Integer> distribute(PipeItem pipeItem, Map<TPDirection, Integer> absWeights, Pipe pipe, int[] weights) {
+        int amount = pipeItem.getItem().getAmount();
 
-        if (weightsDirectionList.isEmpty()) {
-            // return empty map so the item will be dropped
-            // if null would be returned, no item will be dropped
-            if (origWeights != null) {
-                return splitPipeItem(pipeItem, origWeights, pipe, null);
+        Map<BlockLocation, TransportPipesContainer> containerMap = ((PipeManager) (DuctManager<? extends Duct>) ductRegister.baseDuctTypeOf("pipe").getDuctManager()).getContainers(pipe.getWorld());
+        Map<BlockLocation, Duct> ductMap = globalDuctManager.getDucts(pipe.getWorld());
+
+        int gcd = gcdOfAbsWeights(absWeights);
+        TPDirection firstDir = null;
+        int dirCount = 0;
+        for (Map.Entry<TPDirection, Integer> entry : absWeights.entrySet()) {
+            if (entry.getValue() <= 0) {
+                continue;
             }
-            else {
-                return splitMap;
+            // make sure the free space of the nearby container block does not get ignored
+            int weight = Math.min(entry.getValue() / gcd, calculateFreeSpace(pipeItem, entry.getKey(), pipe, containerMap, ductMap));
+            if (weight > 0) {
+                weights[entry.getKey().ordinal()] = weight;
+                dirCount++;
+                if (firstDir == null) {
+                    firstDir = entry.getKey();
+                }
             }
         }
 
-        int distributionCounter = pipeItemDistributionCounter.getOrDefault(pipe, 0);
+        if (dirCount > 1 && generalConf.isRoutingTablesEnabled()) {
+            firstDir = pruneDeadEnds(pipeItem, absWeights, pipe, weights, firstDir);
+        }
+
+        if (firstDir == null) {
+            return null;
+        }
 
+        // only the first visit of an item moves the round-robin of a pipe on. Without a choice, the round-robin always
+        // ends up with the same state, so the visit is not recorded and the route history only contains junctions.
+        boolean junction = dirCount > 1;
+        boolean firstVisit = !junction || !pipeItem.hasVisitedPipe(pipe.getBlockLoc());
+
+        Map<TPDirection, Integer> splitMap;
         if (pipeItem.getExtractMode() == ExtractMode.DIRECT) {
-            splitMap.put(weightsDirectionList.get(0), item.getAmount());
+            splitMap = Map.of(firstDir, amount);
         }
         else {
-            for (int i = 0; i < item.getAmount(); i++) {
-                distributionCounter %= weightsDirectionList.size();
-    
-                TPDirection outputDir = weightsDirectionList.get(distributionCounter);
-                if (splitMap.containsKey(outputDir)) {
-                    splitMap.put(outputDir, splitMap.get(outputDir) + 1);
-                } else {
-                    splitMap.put(outputDir, 1);
+            pipe.getItemDistribution().split(weights, amount, firstVisit);
+            if (!junction) {
+                // the only direction gets the whole amount
+                splitMap = Map.of(firstDir, amount);
+            }
+            else {
+                splitMap = new EnumMap<>(TPDirection.class);
+                for (TPDirection dir : DIRECTIONS) {
+                    if (weights[dir.ordinal()] > 0) {
+                        splitMap.put(dir, weights[dir.ordinal()]);
+                    }
                 }
-    
-                distributionCounter++;
             }
         }
 
-        if (!pipeItem.getVisitedPipes().contains(pipe.getBlockLoc())) {
-            pipeItemDistributionCounter.put(pipe, distributionCounter);
+        if (junction && firstVisit) {
             pipeItem.addVisitedPipe(pipe.getBlockLoc());
         }
 
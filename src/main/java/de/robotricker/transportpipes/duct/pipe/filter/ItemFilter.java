@@ -1,9 +1,14 @@
 package de.robotricker.transportpipes.duct.pipe.filter;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 
 import de.robotricker.transportpipes.items.ItemService;
@@ -18,23 +23,85 @@ public class ItemFilter {
     private final ItemData[] filterItems;
     private FilterMode filterMode;
     private FilterStrictness filterStrictness;
+    /**
+     * the filter in a form which can be applied without going through all filter items, never modified
+     */
+    private volatile CompiledFilter compiledFilter;
+
+    /**
+     * @param materials      the materials of all filter items
+     * @param materialCounts the number of filter items per material, only filled with strictness MATERIAL
+     * @param keyCounts      the number of filter items per item key, only filled with strictness MATERIAL_METADATA
+     */
+    private record CompiledFilter(FilterMode filterMode, FilterStrictness filterStrictness, int itemCount, BitSet materials, Map<Material, Integer> materialCounts, Map<ItemKey, Integer> keyCounts) {
+
+        int countMatches(ItemKey item) {
+            if (!materials.get(item.getType().ordinal())) {
+                return 0;
+            }
+            return switch (filterStrictness) {
+                case MATERIAL -> materialCounts.getOrDefault(item.getType(), 0);
+                case MATERIAL_METADATA -> keyCounts.getOrDefault(item, 0);
+            };
+        }
+
+        int weightOf(int matches) {
+            return switch (filterMode) {
+                case NORMAL -> itemCount == 0 ? 1 : matches;
+                case INVERTED -> matches > 0 ? 0 : 1;
+                case BLOCK_ALL -> 0;
+            };
+        }
+
+    }
 
     public ItemFilter() {
         filterItems = new ItemData[MAX_ITEMS_PER_ROW];
         filterMode = FilterMode.NORMAL;
         filterStrictness = FilterStrictness.MATERIAL_METADATA;
+        compile();
     }
 
+    /**
+     * {@link #compile()} has to be called after the returned array was modified
+     */
     public ItemData[] getFilterItems() {
         return filterItems;
     }
 
+    /**
+     * prepares the filter items, mode and strictness for {@link #getWeight(ItemKey)}. Called automatically when the
+     * mode or strictness changes or the filter is loaded.
+     */
+    public void compile() {
+        int itemCount = 0;
+        BitSet materials = new BitSet();
+        Map<Material, Integer> materialCounts = new EnumMap<>(Material.class);
+        Map<ItemKey, Integer> keyCounts = new HashMap<>();
+        for (ItemData id : filterItems) {
+            if (id == null) {
+                continue;
+            }
+            itemCount++;
+            ItemKey itemKey = id.getItemKey();
+            materials.set(itemKey.getType().ordinal());
+            if (filterStrictness == FilterStrictness.MATERIAL) {
+                materialCounts.merge(itemKey.getType(), 1, Integer::sum);
+            }
+            else {
+                keyCounts.merge(itemKey, 1, Integer::sum);
+            }
+        }
+        compiledFilter = new CompiledFilter(filterMode, filterStrictness, itemCount, materials, Collections.unmodifiableMap(materialCounts), Collections.unmodifiableMap(keyCounts));
+    }
+
     public FilterMode getFilterMode() {
         return filterMode;
     }
 
     public void setFilterMode(FilterMode filterMode) {
         this.filterMode = filterMode;
+        compile();
     }
 
     public FilterStrictness getFilterStrictness() {
@@ -43,43 +110,53 @@ public class ItemFilter {
 
     public void setFilterStrictness(FilterStrictness filterStrictness) {
         this.filterStrictness = filterStrictness;
+        compile();
     }
 
     public FilterResponse applyFilter(ItemStack item) {
-        if (item == null || getFilterMode() == FilterMode.BLOCK_ALL) {
-        	return new FilterResponse(0, false);
+        int weight = getWeight(item);
+        return new FilterResponse(weight, weight > 0);
+    }
+
+    public FilterResponse applyFilter(ItemKey item) {
+        int weight = getWeight(item);
+        return new FilterResponse(weight, weight > 0);
+    }
+
+    /**
+     * THREAD-SAFE returns the weight of the given item for this filter, 0 if the item doesn't pass the filter. An item
+     * key, which copies the meta of the item, is only created with strictness MATERIAL_METADATA and only if the material
+     * of the item is inside the filter.
+     */
+    public int getWeight(ItemStack item) {
+        if (item == null) {
+            return 0;
         }
-        if (getFilterMode() == FilterMode.NORMAL) {
-            int weight = 0;
-            boolean hasItems = false;
-            for (ItemData id : filterItems) {
-            	if (id != null) {
-            		hasItems = true;
-                    if (matchesItemStrictness(id.toItemStack(), item)) {
-                        weight++;
-                    }
-            	}
-            }
-            return hasItems ? new FilterResponse(weight, weight > 0) : new FilterResponse(1, true);
+        CompiledFilter compiledFilter = this.compiledFilter;
+        if (compiledFilter.filterMode() == FilterMode.BLOCK_ALL) {
+            return 0;
         }
-        if (getFilterMode() == FilterMode.INVERTED) {
-            for (ItemData id : filterItems) {
-                if (id != null) {
-                	if (matchesItemStrictness(id.toItemStack(), item)) {
-                		return new FilterResponse(0, false);
-                	}
-                }
-            }
-            return new FilterResponse(1, true);
+        if (!compiledFilter.materials().get(item.getType().ordinal())) {
+            return compiledFilter.weightOf(0);
+        }
+        if (compiledFilter.filterStrictness() == FilterStrictness.MATERIAL) {
+            return compiledFilter.weightOf(compiledFilter.materialCounts().getOrDefault(item.getType(), 0));
         }
-        return new FilterResponse(0, false);
+        return compiledFilter.weightOf(compiledFilter.countMatches(ItemKey.of(item)));
     }
 
-    private boolean matchesItemStrictness(ItemStack mask, ItemStack itemStack) {
-        return switch (getFilterStrictness()) {
-            case MATERIAL -> mask.getType() == itemStack.getType();
-            case MATERIAL_METADATA -> mask.getType() == itemStack.getType() && Bukkit.getItemFactory().equals(mask.getItemMeta(), itemStack.getItemMeta());
-        };
+    /**
+     * THREAD-SAFE returns the weight of the given item for this filter, 0 if the item doesn't pass the filter
+     */
+    public int getWeight(ItemKey item) {
+        if (item == null) {
+            return 0;
+        }
+        CompiledFilter compiledFilter = this.compiledFilter;
+        if (compiledFilter.filterMode() == FilterMode.BLOCK_ALL) {
+            return 0;
+        }
+        return compiledFilter.weightOf(compiledFilter.countMatches(item));
     }
 
     public List<ItemStack> getAsItemStacks() {
@@ -119,6 +196,7 @@ public class ItemFilter {
             ItemStack deserialized = itemService.deserializeItemStack(itemDataListTag.get(i).getValue());
             filterItems[i] = deserialized != null ? new ItemData(deserialized) : null;
         }
+        compile();
     }
 
 }
@@ -0,0 +1,160 @@
+package de.robotricker.transportpipes.duct.pipe.filter;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * The type and meta of an item without its amount. Two item stacks get equal keys if they are
+ * {@link ItemStack#isSimilar(ItemStack) similar}.
+ * <p>
+ * Keys are immutable and interned: items without meta share one key per material and keys with meta are looked up in
+ * a pool, so equal keys are usually the same object and compare by identity. The hash is calculated once, because
+ * hashing the meta is expensive. The pool is looked up with a light probe key, the template item stack is only built
+ * if a key is actually created. Keys which were not looked up for a while are evicted as soon as the pool is full.
+ * An evicted key still compares correctly with {@link #equals(Object)}, it only loses the identity comparison.
+ * <p>
+ * An {@link ItemStack} is only created from a key as soon as one is passed to Bukkit.
+ */
+public final class ItemKey {
+
+    private static final int MAX_INTERNED_KEYS = 4096;
+
+    private static final ItemKey[] PLAIN_KEYS = new ItemKey[Material.values().length];
+    private static final Map<ItemKey, ItemKey> INTERNED_KEYS = new ConcurrentHashMap<>();
+
+    private final Material type;
+    /**
+     * null if the item has got no meta, never modified
+     */
+    private final ItemMeta meta;
+    /**
+     * null if this key is only a probe for the pool
+     */
+    private final ItemStack template;
+    private final int hash;
+    /**
+     * whether this key was looked up since the last eviction sweep of the pool
+     */
+    private volatile boolean used;
+
+    private ItemKey(Material type, ItemMeta meta, int hash, boolean withTemplate) {
+        this.type = type;
+        this.meta = meta;
+        this.hash = hash;
+        if (withTemplate) {
+            this.template = new ItemStack(type, 1);
+            if (meta != null) {
+                this.template.setItemMeta(meta);
+            }
+        } else {
+            this.template = null;
+        }
+        this.used = true;
+    }
+
+    /**
+     * THREAD-SAFE
+     */
+    public static ItemKey of(ItemStack item) {
+        Material type = item.getType();
+        if (!item.hasItemMeta()) {
+            int index = type.ordinal();
+            ItemKey key = PLAIN_KEYS[index];
+            if (key == null) {
+                key = new ItemKey(type, null, 31 * index, true);
+                PLAIN_KEYS[index] = key;
+            }
+            return key;
+        }
+        ItemMeta meta = item.getItemMeta();
+        int hash = 31 * type.ordinal() + meta.hashCode();
+        ItemKey internedKey = INTERNED_KEYS.get(new ItemKey(type, meta, hash, false));
+        if (internedKey != null) {
+            if (!internedKey.used) {
+                internedKey.used = true;
+            }
+            return internedKey;
+        }
+        ItemKey key = new ItemKey(type, meta, hash, true);
+        if (INTERNED_KEYS.size() >= MAX_INTERNED_KEYS && !evictUnusedKeys()) {
+            return key;
+        }
+        internedKey = INTERNED_KEYS.putIfAbsent(key, key);
+        return internedKey != null ? internedKey : key;
+    }
+
+    /**
+     * removes all keys from the pool which were not looked up since the last sweep and starts the next sweep period
+     *
+     * @return whether the pool has got space for a new key
+     */
+    private static synchronized boolean evictUnusedKeys() {
+        if (INTERNED_KEYS.size() < MAX_INTERNED_KEYS) {
+            return true;
+        }
+        Iterator<ItemKey> it = INTERNED_KEYS.values().iterator();
+        while (it.hasNext()) {
+            ItemKey key = it.next();
+            if (key.used) {
+                key.used = false;
+            } else {
+                it.remove();
+            }
+        }
+        return INTERNED_KEYS.size() < MAX_INTERNED_KEYS;
+    }
+
+    public Material getType() {
+        return type;
+    }
+
+    public int getMaxStackSize() {
+        return type.getMaxStackSize();
+    }
+
+    /**
+     * whether the given item stack has got this key, without creating a key for it
+     */
+    public boolean isKeyOf(ItemStack item) {
+        if (item == null || item.getType() != type || item.hasItemMeta() != (meta != null)) {
+            return false;
+        }
+        return meta == null || Bukkit.getItemFactory().equals(meta, item.getItemMeta());
+    }
+
+    /**
+     * creates a new item stack of this key with the given amount
+     */
+    public ItemStack toItemStack(int amount) {
+        ItemStack item = template.clone();
+        item.setAmount(amount);
+        return item;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof ItemKey other))
+            return false;
+        if (hash != other.hash || type != other.type || (meta == null) != (other.meta == null))
+            return false;
+        return meta == null || Bukkit.getItemFactory().equals(meta, other.meta);
+    }
+
+    @Override
+    public String toString() {
+        return template.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package de.robotricker.transportpipes.duct.pipe.filter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.robotricker.transportpipes.location.TPDirection;
+
+/**
+ * The item distribution state of a pipe. Splits item amounts between directions with a smooth weighted round-robin:
+ * every direction collects its weight as credit for every distributed item, the direction with the most credit gets
+ * the item and pays the sum of all weights for it. Over time, every direction gets items in the ratio of its weight and
+ * consecutive items are spread as evenly as possible.
+ * <p>
+ * A whole item stack is distributed at once by giving every direction the items its credit pays for and handing out the
+ * rest by the remaining credit. For a single item, this is exactly the round-robin step described above.
+ * The state is only a few ints per pipe, so it disappears together with its pipe. It starts over as soon as the set of
+ * possible directions changes.
+ */
+public final class WeightedRoundRobin {
+
+    private static final int DIRECTIONS = TPDirection.values().length;
+
+    private final int[] credits = new int[DIRECTIONS];
+    private final long[] remainders = new long[DIRECTIONS];
+    private int directionsMask;
+
+    /**
+     * the weights buffer of the pipe, so a split doesn't need to allocate its own one
+     */
+    private final int[] weightsBuffer = new int[DIRECTIONS];
+    private final AtomicBoolean weightsBufferClaimed = new AtomicBoolean();
+
+    /**
+     * THREAD-SAFE returns the cleared weights buffer of this pipe. If another thread splits an item of this pipe at the
+     * same time, a new buffer is returned instead. Has to be handed back with {@link #releaseWeights(int[])}.
+     */
+    public int[] claimWeights() {
+        if (!weightsBufferClaimed.compareAndSet(false, true)) {
+            return new int[DIRECTIONS];
+        }
+        Arrays.fill(weightsBuffer, 0);
+        return weightsBuffer;
+    }
+
+    /**
+     * THREAD-SAFE
+     */
+    public void releaseWeights(int[] weights) {
+        if (weights == weightsBuffer) {
+            weightsBufferClaimed.set(false);
+        }
+    }
+
+    /**
+     * THREAD-SAFE splits the given amount between the directions with a weight greater than 0. The weights are indexed
+     * by the ordinal of their direction and are replaced by the amounts the directions get.
+     *
+     * @param commit whether the state should be updated. If not, the same split is calculated again for the next call.
+     */
+    public synchronized void split(int[] weights, int amount, boolean commit) {
+        int mask = 0;
+        long totalWeight = 0;
+        for (int i = 0; i < DIRECTIONS; i++) {
+            if (weights[i] > 0) {
+                mask |= 1 << i;
+                totalWeight += weights[i];
+            }
+        }
+        if (mask == 0) {
+            return;
+        }
+
+        // the credits of the old directions don't mean anything for the new ones
+        boolean reset = mask != directionsMask;
+        int distributed = 0;
+        for (int i = 0; i < DIRECTIONS; i++) {
+            if ((mask & (1 << i)) == 0) {
+                weights[i] = 0;
+                continue;
+            }
+            long credit = (reset ? 0 : credits[i]) + (long) amount * weights[i];
+            int share = (int) Math.max(0, Math.floorDiv(credit, totalWeight));
+            weights[i] = share;
+            remainders[i] = credit - share * totalWeight;
+            distributed += share;
+        }
+
+        // hand out the rest to the directions with the most credit left, or take back from the ones with the least
+        while (distributed < amount) {
+            int best = -1;
+            for (int i = 0; i < DIRECTIONS; i++) {
+                if ((mask & (1 << i)) != 0 && (best < 0 || remainders[i] > remainders[best])) {
+                    best = i;
+                }
+            }
+            weights[best]++;
+            remainders[best] -= totalWeight;
+            distributed++;
+        }
+        while (distributed > amount) {
+            int worst = -1;
+            for (int i = 0; i < DIRECTIONS; i++) {
+                if (weights[i] > 0 && (worst < 0 || remainders[i] < remainders[worst])) {
+                    worst = i;
+                }
+            }
+            weights[worst]--;
+            remainders[worst] += totalWeight;
+            distributed--;
+        }
+
+        if (commit) {
+            Arrays.fill(credits, 0);
+            for (int i = 0; i < DIRECTIONS; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    credits[i] = (int) remainders[i];
+                }
+            }
+            directionsMask = mask;
+        }
+    }
+
+}
@@ -1,12 +1,12 @@
 package de.robotricker.transportpipes.duct.pipe.items;
 
-import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.EnumSet;
 import org.bukkit.World;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.util.Vector;
 
 import de.robotricker.transportpipes.duct.pipe.extractionpipe.ExtractMode;
+import de.robotricker.transportpipes.duct.pipe.filter.ItemKey;
 import de.robotricker.transportpipes.items.ItemService;
 import de.robotricker.transportpipes.location.BlockLocation;
 import de.robotricker.transportpipes.location.RelativeLocation;
@@ -14,9 +14,25 @@ import de.robotricker.transportpipes.location.TPDirection;
 import de.robotricker.transportpipes.protocol.ArmorStandData;
 import net.querz.nbt.tag.CompoundTag;
 
+/**
+ * An item which travels through the pipes.
+ * <p>
+ * There can be a lot of them at the same time, so the state of an item is kept small: the armor stand data is only
+ * created as soon as a player gets to see the item, all armor stands share the same immutable pose, and the routing
+ * history is only allocated when it is written for the first time and never grows beyond a fixed number of pipes.
+ * Pipes only record the routing history at junctions, see {@link RouteHistory}.
+ */
 public class PipeItem {
 
-	private ArmorStandData asd;
+	/**
+	 * the pose of all pipe item armor stands, never modified
+	 */
+	private static final RelativeLocation ASD_REL_LOC = new RelativeLocation(0.25f, 0f, 0.33f);
+	private static final Vector ASD_DIRECTION = new Vector(1, 0, 0);
+	private static final Vector ASD_HEAD_ROTATION = new Vector(0f, 0f, 0f);
+	private static final Vector ASD_ARM_ROTATION = new Vector(-30f, 0f, 0f);
+
+	private volatile ArmorStandData asd;
 	private ItemStack item;
 	private World world;
 	private BlockLocation blockLoc;
@@ -25,9 +41,34 @@ public class PipeItem {
 	private RelativeLocation relativeLocation;
 	private TPDirection movingDir;
 	private ExtractMode extractMode = ExtractMode.ROUND;
-	private final LinkedHashSet<BlockLocation> visitedPipes = new LinkedHashSet<>();
-	private final HashMap<BlockLocation, LinkedHashSet<TPDirection>> movedDirs = new HashMap<>();
-	private final HashMap<BlockLocation, TPDirection> sourceDirs = new HashMap<>();
+	private RouteHistory routeHistory;
+	/**
+	 * EVENT ENGINE: the tick at which this item reaches its next point of interest, -1 if not scheduled yet
+	 */
+	private long eventTick = -1;
+	/**
+	 * FLOW CONTROL: whether this item waits at the end of its pipe because the next pipe or container is full
+	 */
+	private boolean waiting;
+	/**
+	 * ITEM TRAINS: the amount of equally sized cars this item consists of, which follow each other with the given
+	 * spacing in ticks. A sealed train doesn't take any more cars.
+	 */
+	private int trainCars = 1;
+	private int trainSpacing;
+	private boolean trainSealed;
+	/**
+	 * ITEM TRAINS: the tick until which the remaining cars of a train wait for the next car to leave, -1 if not held
+	 */
+	private long heldUntilTick = -1;
+	/**
+	 * the key of the item, cached because creating it hashes the meta
+	 */
+	private ItemKey itemKey;
+	/**
+	 * the index of this item inside the {@link PipeItemList} of its pipe, -1 if it isn't inside a list
+	 */
+	private int listIndex = -1;
 
 	public PipeItem() {}
 
@@ -57,14 +98,27 @@ public class PipeItem {
 
 	public void init(World world, boolean initRelLoc) {
 		this.world = world;
-		this.asd = new ArmorStandData(new RelativeLocation(0.25f, 0f, 0.33f), true, new Vector(1, 0, 0), new Vector(0f, 0f, 0f), new Vector(-30f, 0f, 0f), null, item);
+		this.asd = null;
 		if (initRelLoc) this.relativeLocation = new RelativeLocation(movingDir.getX() > 0 ? 0 : (movingDir.getX() < 0 ? 1 : 0.5f), movingDir.getY() > 0 ? 0 : (movingDir.getY() < 0 ? 1 : 0.5f),
 				movingDir.getZ() > 0 ? 0 : (movingDir.getZ() < 0 ? 1 : 0.5f));
 		resetOldRelativeLocation();
 	}
 
+	/**
+	 * THREAD-SAFE creates the armor stand data on the first call
+	 */
 	public ArmorStandData getAsd() {
-		return asd;
+		ArmorStandData armorStandData = asd;
+		if (armorStandData == null) {
+			synchronized (this) {
+				armorStandData = asd;
+				if (armorStandData == null) {
+					armorStandData = new ArmorStandData(ASD_REL_LOC, true, ASD_DIRECTION, ASD_HEAD_ROTATION, ASD_ARM_ROTATION, null, item);
+					asd = armorStandData;
+				}
+			}
+		}
+		return armorStandData;
 	}
 
 	public ItemStack getItem() {
@@ -73,6 +127,18 @@ public class PipeItem {
 
 	public void setItem(ItemStack item) {
 		this.item = item;
+		this.itemKey = null;
+	}
+
+	/**
+	 * returns the key of the item, which is the same for all items which are {@link ItemStack#isSimilar(ItemStack)
+	 * similar} to this item. The type and meta of the item stack must not be changed directly, only its amount.
+	 */
+	public ItemKey getItemKey() {
+		if (itemKey == null) {
+			itemKey = ItemKey.of(item);
+		}
+		return itemKey;
 	}
 
 	public World getWorld() {
@@ -103,12 +169,31 @@ public class PipeItem {
 		return relativeLocation;
 	}
 
-	public RelativeLocation getRelativeLocationDifference() {
-		return relativeLocation.clone().add(-oldRelativeLocation.getLongX(), -oldRelativeLocation.getLongY(), -oldRelativeLocation.getLongZ());
+	/**
+	 * the fixed-point movement since the last call of {@link #resetOldRelativeLocation()}
+	 */
+	public long getRelativeLocationDeltaX() {
+		return relativeLocation.getDeltaX(oldRelativeLocation);
+	}
+
+	public long getRelativeLocationDeltaY() {
+		return relativeLocation.getDeltaY(oldRelativeLocation);
 	}
 
+	public long getRelativeLocationDeltaZ() {
+		return relativeLocation.getDeltaZ(oldRelativeLocation);
+	}
+
+	/**
+	 * called after every movement, so the old location is only allocated once and copied into afterwards
+	 */
 	public void resetOldRelativeLocation() {
-		oldRelativeLocation = relativeLocation.clone();
+		if (oldRelativeLocation == null) {
+			oldRelativeLocation = relativeLocation.clone();
+		}
+		else {
+			oldRelativeLocation.copyFrom(relativeLocation);
+		}
 	}
 
 	public TPDirection getMovingDir() {
@@ -119,34 +204,52 @@ public class PipeItem {
 		this.movingDir = movingDir;
 	}
 	
-	public LinkedHashSet<TPDirection> getMovedDirs(BlockLocation location) {
-		return movedDirs.get(location);
+	/**
+	 * @return a copy of the directions this item already moved to inside the pipe at the given location, null if there
+	 * are none
+	 */
+	public EnumSet<TPDirection> getMovedDirs(BlockLocation location) {
+		int mask = routeHistory != null ? routeHistory.getMovedDirsMask(location) : 0;
+		if (mask == 0) {
+			return null;
+		}
+		EnumSet<TPDirection> dirs = EnumSet.noneOf(TPDirection.class);
+		for (TPDirection dir : TPDirection.values()) {
+			if ((mask & (1 << dir.ordinal())) != 0) {
+				dirs.add(dir);
+			}
+		}
+		return dirs;
+	}
+	
+	public boolean hasMovedDir(BlockLocation location, TPDirection dir) {
+		return routeHistory != null && (routeHistory.getMovedDirsMask(location) & (1 << dir.ordinal())) != 0;
 	}
 	
 	public void addMovedDir(BlockLocation location, TPDirection movedDir) {
-	    LinkedHashSet<TPDirection> dirs = movedDirs.containsKey(location) ? movedDirs.get(location) : new LinkedHashSet<>();
-		dirs.add(movedDir);
-		movedDirs.put(location, dirs);
+		getRouteHistory().addMovedDir(location, movedDir);
 	}
 	
 	public boolean hasMovedDirs(BlockLocation location) {
-		return movedDirs.containsKey(location);
+		return routeHistory != null && routeHistory.getMovedDirsMask(location) != 0;
 	}
 	
 	public void removeMovedDir(BlockLocation location) {
-	    movedDirs.remove(location);
+		if (routeHistory != null) {
+			routeHistory.removeMovedDirs(location);
+		}
 	}
 	
 	public TPDirection getSourceDir(BlockLocation location) {
-		return sourceDirs.get(location);
+		return routeHistory != null ? routeHistory.getSourceDir(location) : null;
 	}
 	
 	public void addSourceDir(BlockLocation location, TPDirection sourceDir) {
-		sourceDirs.put(location, sourceDir);
+		getRouteHistory().setSourceDir(location, sourceDir);
 	}
 	
 	public boolean hasSourceDir(BlockLocation location) {
-		return sourceDirs.containsKey(location);
+		return getSourceDir(location) != null;
 	}
 	
 	public ExtractMode getExtractMode() {
@@ -157,16 +260,112 @@ public class PipeItem {
 	    this.extractMode = extractMode;
 	}
 	
-	public LinkedHashSet<BlockLocation> getVisitedPipes() {
-	    return visitedPipes;
+	public boolean hasVisitedPipe(BlockLocation blockLocation) {
+	    return routeHistory != null && routeHistory.isVisited(blockLocation);
 	}
 	
 	public void addVisitedPipe(BlockLocation blockLocation) {
-	    visitedPipes.add(blockLocation);
+	    getRouteHistory().setVisited(blockLocation, true);
 	}
 	
 	public void removeVisitedPipe(BlockLocation blockLocation) {
-	    visitedPipes.remove(blockLocation);
+	    if (routeHistory != null) {
+	        routeHistory.setVisited(blockLocation, false);
+	    }
+	}
+
+	private RouteHistory getRouteHistory() {
+		if (routeHistory == null) {
+			routeHistory = new RouteHistory();
+		}
+		return routeHistory;
+	}
+
+	public long getEventTick() {
+		return eventTick;
+	}
+
+	public void setEventTick(long eventTick) {
+		this.eventTick = eventTick;
+	}
+
+	public boolean isWaiting() {
+		return waiting;
+	}
+
+	public void setWaiting(boolean waiting) {
+		this.waiting = waiting;
+	}
+
+	public int getTrainCars() {
+		return trainCars;
+	}
+
+	public int getTrainSpacing() {
+		return trainSpacing;
+	}
+
+	public void sealTrain() {
+		trainSealed = true;
+	}
+
+	int getListIndex() {
+		return listIndex;
+	}
+
+	void setListIndex(int listIndex) {
+		this.listIndex = listIndex;
+	}
+
+	public long getHeldUntilTick() {
+		return heldUntilTick;
+	}
+
+	public void setHeldUntilTick(long heldUntilTick) {
+		this.heldUntilTick = heldUntilTick;
+	}
+
+	/**
+	 * ITEM TRAINS: appends the given item as last car to this train if it is similar to the other cars and follows them
+	 * with the spacing of this train
+	 *
+	 * @param gap the ticks between the given item and the last car of this train
+	 * @return whether the item is now part of this train
+	 */
+	public boolean addTrainCar(PipeItem car, long gap) {
+		if (trainSealed || gap <= 0 || gap > Integer.MAX_VALUE || (trainCars > 1 && gap != trainSpacing)) {
+			return false;
+		}
+		int carAmount = item.getAmount() / trainCars;
+		if (car.getItem().getAmount() != carAmount || car.getExtractMode() != extractMode || item.getAmount() + carAmount > item.getMaxStackSize()) {
+			return false;
+		}
+		if (!getItemKey().equals(car.getItemKey())) {
+			return false;
+		}
+		item.setAmount(item.getAmount() + carAmount);
+		trainCars++;
+		trainSpacing = (int) gap;
+		return true;
+	}
+
+	/**
+	 * ITEM TRAINS: removes the first car from this train and returns it as a new pipe item at the same position
+	 */
+	public PipeItem detachFirstCar() {
+		int carAmount = item.getAmount() / trainCars;
+		ItemStack carItem = getItemKey().toItemStack(carAmount);
+		item.setAmount(item.getAmount() - carAmount);
+		trainCars--;
+		trainSealed = true;
+
+		PipeItem car = new PipeItem(carItem, world, blockLoc, relativeLocation.clone(), movingDir);
+		car.sourceLoc = sourceLoc;
+		car.extractMode = extractMode;
+		car.routeHistory = routeHistory != null ? routeHistory.copy() : null;
+		car.trainSealed = true;
+		car.itemKey = itemKey;
+		return car;
 	}
 
 	public void saveToNBTTag(CompoundTag compoundTag, ItemService itemService) {
@@ -174,13 +373,22 @@ public class PipeItem {
 		compoundTag.putString("blockLoc", blockLoc.toString());
 		compoundTag.putString("relLoc", relativeLocation.toString());
 		compoundTag.putInt("movingDir", movingDir.ordinal());
+		if (trainCars > 1) {
+			compoundTag.putInt("trainCars", trainCars);
+			compoundTag.putInt("trainSpacing", trainSpacing);
+		}
 	}
 
 	public void loadFromNBTTag(CompoundTag compoundTag, World world, ItemService itemService) {
-		item = itemService.deserializeItemStack(compoundTag.getString("itemStack"));
+		setItem(itemService.deserializeItemStack(compoundTag.getString("itemStack")));
 		blockLoc = BlockLocation.fromString(compoundTag.getString("blockLoc"));
 		relativeLocation = RelativeLocation.fromString(compoundTag.getString("relLoc"));
 		movingDir = TPDirection.values()[compoundTag.getInt("movingDir")];
+		if (compoundTag.containsKey("trainCars")) {
+			trainCars = compoundTag.getInt("trainCars");
+			trainSpacing = compoundTag.getInt("trainSpacing");
+			trainSealed = true;
+		}
 		init(world, false);
 	}
 
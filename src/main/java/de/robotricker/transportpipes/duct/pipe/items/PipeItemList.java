@@ -0,0 +1,168 @@
+package de.robotricker.transportpipes.duct.pipe.items;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The items inside a pipe. Every item knows its index inside the list, so {@link #add(PipeItem)},
+ * {@link #remove(Object)}, {@link #contains(Object)} and {@link #size()} don't have to search the list. An item is
+ * removed by moving the last item into its place, so the order of the items is not kept.
+ * <p>
+ * The list is only modified by the thread which ticks the pipe, other threads hand their items over through the future
+ * items of the pipe. The only exception is {@link #clear()} as the pipe is destroyed, so the ticking thread has to
+ * expect null from {@link #get(int)}. Other threads may read the list, they get a weakly consistent view: an item which
+ * is moved or removed at the same time might be missed or returned twice.
+ * <p>
+ * Items which are removed while iterating backwards with {@link #get(int)} don't disturb the iteration, because only
+ * already visited items are moved.
+ * <p>
+ * The train cars of the items inside the list are counted as the list is modified, so the number of items of a pipe is
+ * known without iterating it. A pipe shares this counter with its future items.
+ */
+public final class PipeItemList extends AbstractCollection<PipeItem> {
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	private PipeItem[] elements = new PipeItem[INITIAL_CAPACITY];
+	private volatile int size;
+	/**
+	 * THREAD-SAFE
+	 */
+	private final AtomicInteger carCount;
+
+	public PipeItemList() {
+		this(new AtomicInteger());
+	}
+
+	/**
+	 * @param carCount the counter the train cars of the items inside this list are added to
+	 */
+	public PipeItemList(AtomicInteger carCount) {
+		this.carCount = carCount;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the item at the given index, null if another thread removed it in the meantime
+	 */
+	public PipeItem get(int index) {
+		PipeItem[] elements = this.elements;
+		return index < elements.length ? elements[index] : null;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof PipeItem pipeItem)) {
+			return false;
+		}
+		int index = pipeItem.getListIndex();
+		PipeItem[] elements = this.elements;
+		return index >= 0 && index < elements.length && elements[index] == pipeItem;
+	}
+
+	/**
+	 * @return false if the item is already inside this list
+	 */
+	@Override
+	public boolean add(PipeItem pipeItem) {
+		if (contains(pipeItem)) {
+			return false;
+		}
+		int size = this.size;
+		if (size == elements.length) {
+			PipeItem[] newElements = new PipeItem[size * 2];
+			System.arraycopy(elements, 0, newElements, 0, size);
+			elements = newElements;
+		}
+		elements[size] = pipeItem;
+		pipeItem.setListIndex(size);
+		this.size = size + 1;
+		carCount.addAndGet(pipeItem.getTrainCars());
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!contains(o)) {
+			return false;
+		}
+		PipeItem pipeItem = (PipeItem) o;
+		int index = pipeItem.getListIndex();
+		int last = size - 1;
+		if (index != last) {
+			PipeItem lastItem = elements[last];
+			elements[index] = lastItem;
+			lastItem.setListIndex(index);
+		}
+		elements[last] = null;
+		pipeItem.setListIndex(-1);
+		size = last;
+		carCount.addAndGet(-pipeItem.getTrainCars());
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		PipeItem[] elements = this.elements;
+		for (int i = 0; i < size && i < elements.length; i++) {
+			if (elements[i] != null) {
+				elements[i].setListIndex(-1);
+				carCount.addAndGet(-elements[i].getTrainCars());
+			}
+		}
+		this.elements = new PipeItem[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	@Override
+	public Iterator<PipeItem> iterator() {
+		int size = this.size;
+		PipeItem[] elements = this.elements;
+		int end = Math.min(size, elements.length);
+		return new Iterator<>() {
+
+			private int index = -1;
+			private PipeItem next = advance();
+
+			/**
+			 * the next item is read ahead, so an item which is removed after hasNext() can't turn into null
+			 */
+			private PipeItem advance() {
+				while (++index < end) {
+					PipeItem pipeItem = elements[index];
+					if (pipeItem != null) {
+						return pipeItem;
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public PipeItem next() {
+				PipeItem pipeItem = next;
+				if (pipeItem == null) {
+					throw new NoSuchElementException();
+				}
+				next = advance();
+				return pipeItem;
+			}
+		};
+	}
+
+}
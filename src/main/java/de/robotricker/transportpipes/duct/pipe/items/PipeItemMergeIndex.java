@@ -0,0 +1,141 @@
+package de.robotricker.transportpipes.duct.pipe.items;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.bukkit.inventory.ItemStack;
+
+import de.robotricker.transportpipes.duct.pipe.filter.ItemKey;
+import de.robotricker.transportpipes.location.TPDirection;
+
+/**
+ * The items of a pipe which are not full, indexed by their type, meta and moving direction, so a future item finds the
+ * items it can merge into without comparing it with every item in the pipe. Items with the same key are kept in the
+ * order of the pipe, so a future item fills them one after another.
+ * <p>
+ * Building the index only pays off for pipes with a lot of items. As long as a pipe holds only a few items, they are
+ * scanned instead, which merges into the same items. The index is only used by the thread which ticks the pipe during
+ * the activation of its future items.
+ */
+public final class PipeItemMergeIndex {
+
+	/**
+	 * the amount of items up to which a pipe is scanned instead of building the index
+	 */
+	private static final int SCAN_LIMIT = 32;
+
+	private final Collection<PipeItem> pipeItems;
+	/**
+	 * null as long as the items are scanned
+	 */
+	private Map<Long, ArrayDeque<PipeItem>> mergeTargets;
+
+	/**
+	 * @param pipeItems the live items of the pipe, future items which were not merged are added to them
+	 */
+	public PipeItemMergeIndex(Collection<PipeItem> pipeItems) {
+		this.pipeItems = pipeItems;
+	}
+
+	/**
+	 * has to be called after the given item was added to the items of the pipe
+	 */
+	public void add(PipeItem pipeItem) {
+		if (mergeTargets != null && isMergeable(pipeItem)) {
+			mergeTargets.computeIfAbsent(getMergeKey(pipeItem), k -> new ArrayDeque<>()).addLast(pipeItem);
+		}
+	}
+
+	/**
+	 * merges the given future item into similar items which move in the same direction
+	 *
+	 * @return true if the whole future item was merged, false if it (or a part of it) is left
+	 */
+	public boolean merge(PipeItem futureItem) {
+		if (futureItem.getTrainCars() > 1) {
+			return false;
+		}
+		if (mergeTargets == null) {
+			if (pipeItems.size() <= SCAN_LIMIT) {
+				return mergeByScan(futureItem);
+			}
+			buildIndex();
+		}
+		ArrayDeque<PipeItem> targets = mergeTargets.get(getMergeKey(futureItem));
+		if (targets == null) {
+			return false;
+		}
+		ItemKey itemKey = futureItem.getItemKey();
+		Iterator<PipeItem> targetsIt = targets.iterator();
+		while (targetsIt.hasNext()) {
+			PipeItem target = targetsIt.next();
+			// items with the same hash can still be different items
+			if (!target.getItemKey().equals(itemKey)) {
+				continue;
+			}
+			boolean merged = mergeItem(target, futureItem);
+			if (isFull(target)) {
+				targetsIt.remove();
+			}
+			if (merged) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean mergeByScan(PipeItem futureItem) {
+		ItemKey itemKey = futureItem.getItemKey();
+		TPDirection movingDir = futureItem.getMovingDir();
+		for (PipeItem target : pipeItems) {
+			if (target.getMovingDir() == movingDir && isMergeable(target) && target.getItemKey().equals(itemKey) && mergeItem(target, futureItem)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void buildIndex() {
+		mergeTargets = new HashMap<>();
+		for (PipeItem pipeItem : pipeItems) {
+			add(pipeItem);
+		}
+	}
+
+	private static long getMergeKey(PipeItem pipeItem) {
+		return ((long) pipeItem.getItemKey().hashCode() << 3) | pipeItem.getMovingDir().ordinal();
+	}
+
+	private static boolean isFull(PipeItem pipeItem) {
+		return pipeItem.getItem().getAmount() >= pipeItem.getItem().getMaxStackSize();
+	}
+
+	/**
+	 * item trains keep their cars apart, so they never merge
+	 */
+	private static boolean isMergeable(PipeItem pipeItem) {
+		return !isFull(pipeItem) && pipeItem.getTrainCars() == 1;
+	}
+
+	/**
+	 * moves as much of the amount of the future item into the target item as fits into its stack
+	 *
+	 * @return true if the whole future item was merged
+	 */
+	private static boolean mergeItem(PipeItem target, PipeItem futureItem) {
+		target.sealTrain();
+		ItemStack targetItem = target.getItem();
+		int difference = targetItem.getAmount() + futureItem.getItem().getAmount() - targetItem.getMaxStackSize();
+		if (difference <= 0) {
+			targetItem.setAmount(targetItem.getAmount() + futureItem.getItem().getAmount());
+			return true;
+		}
+		targetItem.setAmount(targetItem.getMaxStackSize());
+		futureItem.getItem().setAmount(difference);
+		return false;
+	}
+
+}
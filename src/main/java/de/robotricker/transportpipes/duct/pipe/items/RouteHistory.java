@@ -0,0 +1,158 @@
+package de.robotricker.transportpipes.duct.pipe.items;
+
+import de.robotricker.transportpipes.location.BlockLocation;
+import de.robotricker.transportpipes.location.TPDirection;
+
+/**
+ * The routing history of a pipe item. For every remembered pipe it stores the directions the item already moved to
+ * as 6-bit mask, the direction the item first came from and whether the item distributor already counted the item at
+ * this pipe.
+ * <p>
+ * The history is bounded: it remembers at most {@link #getMaxEntries()} pipes and forgets the least recently used one
+ * if it is full, so the heap of a pipe item stays the same no matter how far it has travelled. The entries are kept
+ * in small parallel arrays which are scanned linearly, which is faster than hashing for these sizes.
+ */
+public final class RouteHistory {
+
+	public static final int DEFAULT_MAX_ENTRIES = 32;
+	private static final int INITIAL_CAPACITY = 4;
+
+	private static final int MOVED_DIRS_MASK = 0x3F;
+	private static final int SOURCE_DIR_SHIFT = 6;
+	private static final int SOURCE_DIR_MASK = 0x7 << SOURCE_DIR_SHIFT;
+	private static final int VISITED = 1 << 9;
+
+	private static volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+
+	private long[] keys = new long[INITIAL_CAPACITY];
+	private int[] values = new int[INITIAL_CAPACITY];
+	private int[] lastUses = new int[INITIAL_CAPACITY];
+	private int size;
+	private int useCounter;
+
+	public static int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public static void setMaxEntries(int maxEntries) {
+		RouteHistory.maxEntries = Math.max(1, maxEntries);
+	}
+
+	public RouteHistory copy() {
+		RouteHistory copy = new RouteHistory();
+		copy.grow(keys.length);
+		System.arraycopy(keys, 0, copy.keys, 0, size);
+		System.arraycopy(values, 0, copy.values, 0, size);
+		System.arraycopy(lastUses, 0, copy.lastUses, 0, size);
+		copy.size = size;
+		copy.useCounter = useCounter;
+		return copy;
+	}
+
+	public int getMovedDirsMask(BlockLocation location) {
+		return get(location) & MOVED_DIRS_MASK;
+	}
+
+	public void addMovedDir(BlockLocation location, TPDirection dir) {
+		update(location, 1 << dir.ordinal(), 0);
+	}
+
+	public void removeMovedDirs(BlockLocation location) {
+		int index = indexOf(location.toLong());
+		if (index >= 0) {
+			values[index] &= ~MOVED_DIRS_MASK;
+		}
+	}
+
+	/**
+	 * @return the direction the item first came from into the given pipe, null if it is unknown
+	 */
+	public TPDirection getSourceDir(BlockLocation location) {
+		int sourceDir = (get(location) & SOURCE_DIR_MASK) >> SOURCE_DIR_SHIFT;
+		return sourceDir != 0 ? TPDirection.values()[sourceDir - 1] : null;
+	}
+
+	public void setSourceDir(BlockLocation location, TPDirection dir) {
+		update(location, (dir.ordinal() + 1) << SOURCE_DIR_SHIFT, SOURCE_DIR_MASK);
+	}
+
+	public boolean isVisited(BlockLocation location) {
+		return (get(location) & VISITED) != 0;
+	}
+
+	public void setVisited(BlockLocation location, boolean visited) {
+		if (visited) {
+			update(location, VISITED, 0);
+		}
+		else {
+			int index = indexOf(location.toLong());
+			if (index >= 0) {
+				values[index] &= ~VISITED;
+			}
+		}
+	}
+
+	private int get(BlockLocation location) {
+		int index = indexOf(location.toLong());
+		return index >= 0 ? values[index] : 0;
+	}
+
+	private void update(BlockLocation location, int setBits, int clearBits) {
+		long key = location.toLong();
+		int index = indexOf(key);
+		if (index < 0) {
+			index = insert(key);
+		}
+		values[index] = (values[index] & ~clearBits) | setBits;
+	}
+
+	/**
+	 * finds the entry of the given key and marks it as most recently used
+	 */
+	private int indexOf(long key) {
+		for (int i = 0; i < size; i++) {
+			if (keys[i] == key) {
+				lastUses[i] = ++useCounter;
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int insert(long key) {
+		int index;
+		int max = maxEntries;
+		if (size < max) {
+			if (size == keys.length) {
+				grow(Math.min(max, size * 2));
+			}
+			index = size++;
+		}
+		else {
+			// evict the least recently used entry, the ages stay correct if the counter overflows
+			index = 0;
+			for (int i = 1; i < size; i++) {
+				if (useCounter - lastUses[i] > useCounter - lastUses[index]) {
+					index = i;
+				}
+			}
+		}
+		keys[index] = key;
+		values[index] = 0;
+		lastUses[index] = ++useCounter;
+		return index;
+	}
+
+	private void grow(int capacity) {
+		long[] newKeys = new long[capacity];
+		int[] newValues = new int[capacity];
+		int[] newLastUses = new int[capacity];
+		System.arraycopy(keys, 0, newKeys, 0, size);
+		System.arraycopy(values, 0, newValues, 0, size);
+		System.arraycopy(lastUses, 0, newLastUses, 0, size);
+		keys = newKeys;
+		values = newValues;
+		lastUses = newLastUses;
+	}
+
+}
@@ -0,0 +1,209 @@
+package de.robotricker.transportpipes.duct.pipe.network;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.bukkit.World;
+
+import de.robotricker.transportpipes.TransportPipes;
+import de.robotricker.transportpipes.api.TransportPipesContainer;
+import de.robotricker.transportpipes.duct.Duct;
+import de.robotricker.transportpipes.duct.manager.PipeManager;
+import de.robotricker.transportpipes.duct.pipe.Pipe;
+import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.duct.sync.ContainerInsertCommand;
+import de.robotricker.transportpipes.duct.sync.RerouteCommand;
+import de.robotricker.transportpipes.duct.sync.SyncCommand;
+import de.robotricker.transportpipes.location.TPDirection;
+
+/**
+ * HIDDEN ITEMS: Nobody sees the items of a hidden item world, so they don't have to move from pipe to pipe. An item
+ * which is extracted in such a world is routed through the whole network at once, with the same distribution as a
+ * moving item gets in the middle of every pipe. Every part of it waits inside the last pipe of its route until the tick
+ * in which a moving item would have arrived at its destination and is inserted into the container there by a
+ * {@link ContainerInsertCommand}.
+ * <p>
+ * Routes which don't end at a container (sinks, dead ends, unloaded pipes and items which need a reroute) hand the
+ * item over to the moving simulation at the tick it would have arrived there. The routes are decided at extraction, so
+ * a route doesn't change anymore if the network is changed while its item is on the way. Items which wait for their
+ * arrival tick are saved with the pipe which holds them and continue as moving items after a restart.
+ * <p>
+ * Items are added from any thread, everything else is done inside the TransportPipes thread.
+ */
+public class HiddenItemRouter {
+
+    /**
+     * routes which are longer than this are handed over to the moving simulation, so loops in a network can't route an
+     * item forever
+     */
+    private static final int MAX_HOPS = 1024;
+
+    /**
+     * THREAD-SAFE
+     */
+    private final ConcurrentHashMap<World, Queue<ExtractedItem>> extractedItems;
+    private final Map<World, PriorityQueue<Delivery>> deliveries;
+    private long nextSequence;
+
+    public HiddenItemRouter() {
+        this.extractedItems = new ConcurrentHashMap<>();
+        this.deliveries = new HashMap<>();
+        this.nextSequence = 0;
+    }
+
+    /**
+     * THREAD-SAFE: routes the given item, which just entered the given pipe, at the next tick of its world
+     */
+    public void addExtractedItem(Pipe pipe, PipeItem pipeItem) {
+        pipe.addRoutedItem(pipeItem);
+        extractedItems.computeIfAbsent(pipe.getWorld(), w -> new ConcurrentLinkedQueue<>()).add(new ExtractedItem(pipe, pipeItem));
+    }
+
+    public void retainWorlds(Set<World> worlds) {
+        extractedItems.keySet().retainAll(worlds);
+        deliveries.keySet().retainAll(worlds);
+    }
+
+    /**
+     * routes the items which were extracted in the given world since its last tick and delivers all items whose arrival
+     * tick has come. Called inside the TransportPipes thread before the networks of the given world are ticked.
+     *
+     * @param syncCommands the container inserts and reroutes of this tick are added to this list
+     */
+    public void tick(World world, long currentTick, TransportPipes transportPipes, PipeManager pipeManager, List<SyncCommand> syncCommands) {
+        PriorityQueue<Delivery> worldDeliveries = deliveries.computeIfAbsent(world, w -> new PriorityQueue<>());
+
+        Queue<ExtractedItem> worldExtractedItems = extractedItems.get(world);
+        if (worldExtractedItems != null) {
+            ExtractedItem extractedItem;
+            while ((extractedItem = worldExtractedItems.poll()) != null) {
+                // the pipe could have been destroyed or saved in the meantime
+                if (extractedItem.pipe().removeRoutedItem(extractedItem.pipeItem())) {
+                    route(extractedItem.pipe(), extractedItem.pipeItem(), currentTick, transportPipes, worldDeliveries);
+                }
+            }
+        }
+
+        while (!worldDeliveries.isEmpty() && worldDeliveries.peek().tick() <= currentTick) {
+            Delivery delivery = worldDeliveries.poll();
+            if (delivery.pipe().removeRoutedItem(delivery.pipeItem())) {
+                deliver(delivery, pipeManager, syncCommands);
+            }
+        }
+    }
+
+    /**
+     * walks along the route of the given item, which is at the entry of the given pipe and moves inside this pipe for
+     * the first time in the given tick, and schedules the delivery of every part of it
+     */
+    private void route(Pipe startPipe, PipeItem startItem, long startTick, TransportPipes transportPipes, Queue<Delivery> worldDeliveries) {
+        Deque<Leg> legs = new ArrayDeque<>();
+        legs.push(new Leg(startPipe, startItem, startTick, 0));
+        while (!legs.isEmpty()) {
+            Leg leg = legs.pop();
+            Pipe pipe = leg.pipe();
+            PipeItem pipeItem = leg.pipeItem();
+
+            if (leg.hops() >= MAX_HOPS || pipe.isRoutingSink()) {
+                schedule(worldDeliveries, leg.firstMoveTick(), pipe, pipeItem, null, null);
+                continue;
+            }
+
+            // arrival at middle
+            long middleTick = leg.firstMoveTick() + pipe.getTicksToNextPointOfInterest(pipeItem) - 1;
+            pipe.moveToNextPointOfInterest(pipeItem);
+            pipeItem.resetOldRelativeLocation();
+            List<TPDirection> possibleMovingDirs = new ArrayList<>(pipe.getAllConnections());
+            Map<TPDirection, Integer> distribution = pipe.routeAtMiddle(pipeItem, possibleMovingDirs, transportPipes);
+            if (distribution == null) {
+                // the item was taken by the pipe
+                continue;
+            }
+            if (distribution.isEmpty()) {
+                schedule(worldDeliveries, middleTick, pipe, pipeItem, null, new RerouteCommand(pipe, pipeItem, possibleMovingDirs, transportPipes));
+                continue;
+            }
+
+            for (PipeItem part : pipe.splitAtMiddle(pipeItem, distribution)) {
+                // arrival at end
+                long endTick = middleTick + pipe.getTicksToNextPointOfInterest(part);
+                TPDirection movingDir = part.getMovingDir();
+                Duct duct = pipe.getDuctConnections().get(movingDir);
+                TransportPipesContainer container = pipe.getContainerConnections().get(movingDir);
+                if (duct instanceof Pipe nextPipe && nextPipe.isInLoadedChunk()) {
+                    pipe.moveToNextPointOfInterest(part);
+                    nextPipe.prepareEntry(part);
+                    legs.push(new Leg(nextPipe, part, endTick + 1, leg.hops() + 1));
+                }
+                else if (duct == null && container != null) {
+                    schedule(worldDeliveries, endTick, pipe, part, container, null);
+                }
+                else {
+                    // dead ends and unloaded pipes are handled by the moving simulation, the part moves on from the
+                    // middle of this pipe
+                    schedule(worldDeliveries, middleTick + 1, pipe, part, null, null);
+                }
+            }
+        }
+    }
+
+    private void schedule(Queue<Delivery> worldDeliveries, long tick, Pipe pipe, PipeItem pipeItem, TransportPipesContainer container, SyncCommand command) {
+        pipe.addRoutedItem(pipeItem);
+        worldDeliveries.add(new Delivery(tick, nextSequence++, pipe, pipeItem, container, command));
+    }
+
+    private void deliver(Delivery delivery, PipeManager pipeManager, List<SyncCommand> syncCommands) {
+        Pipe pipe = delivery.pipe();
+        PipeItem pipeItem = delivery.pipeItem();
+        if (delivery.container() != null) {
+            pipe.moveToNextPointOfInterest(pipeItem);
+            pipe.prepareContainerInsert(pipeItem);
+            syncCommands.add(new ContainerInsertCommand(pipe, pipeItem, delivery.container(), pipeManager));
+        }
+        else if (delivery.command() != null) {
+            syncCommands.add(delivery.command());
+        }
+        else {
+            pipe.putPipeItem(pipeItem);
+        }
+    }
+
+    /**
+     * an item which was extracted into the given pipe by another thread and wasn't routed yet
+     */
+    private record ExtractedItem(Pipe pipe, PipeItem pipeItem) {
+    }
+
+    /**
+     * a part of a route: the given item is at the entry of the given pipe and moves inside it for the first time in the
+     * given tick
+     */
+    private record Leg(Pipe pipe, PipeItem pipeItem, long firstMoveTick, int hops) {
+    }
+
+    /**
+     * the given item waits inside the given pipe until the given tick. Then it is inserted into the given container,
+     * the given command is applied or, if there is neither, it is put back into the pipe as moving item.
+     */
+    private record Delivery(long tick, long sequence, Pipe pipe, PipeItem pipeItem, TransportPipesContainer container, SyncCommand command) implements Comparable<Delivery> {
+
+        @Override
+        public int compareTo(Delivery other) {
+            if (tick != other.tick) {
+                return Long.compare(tick, other.tick);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+
+    }
+
+}
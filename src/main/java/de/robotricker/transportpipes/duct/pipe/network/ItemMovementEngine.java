@@ -0,0 +1,15 @@
+package de.robotricker.transportpipes.duct.pipe.network;
+
+public enum ItemMovementEngine {
+
+    /**
+     * every pipe item is moved a bit on every tick
+     */
+    STEP,
+    /**
+     * every pipe item is only processed when it reaches the middle or the end of a pipe. Its position is only sent to
+     * the players at these points, the clients interpolate the movement in between.
+     */
+    EVENT
+
+}
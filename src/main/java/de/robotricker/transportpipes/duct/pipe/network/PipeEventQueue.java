@@ -0,0 +1,107 @@
+package de.robotricker.transportpipes.duct.pipe.network;
+
+import java.util.Arrays;
+
+import de.robotricker.transportpipes.duct.pipe.Pipe;
+
+/**
+ * Binary min-heap of (tick, pipe) events which is used by the event item movement engine.
+ * Events of the same tick are ordered by the network index of their pipe, so they are processed in block location
+ * order.
+ * <p>
+ * Entries are never removed from the middle of the heap. Outdated entries are skipped by the {@link PipeNetwork} when
+ * they are polled.
+ */
+class PipeEventQueue {
+
+    private long[] ticks;
+    private Pipe[] pipes;
+    private int size;
+
+    PipeEventQueue() {
+        this.ticks = new long[16];
+        this.pipes = new Pipe[16];
+        this.size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * only valid if this queue is not empty
+     */
+    long peekTick() {
+        return ticks[0];
+    }
+
+    /**
+     * only valid if this queue is not empty
+     */
+    Pipe peekPipe() {
+        return pipes[0];
+    }
+
+    void clear() {
+        Arrays.fill(pipes, 0, size, null);
+        size = 0;
+    }
+
+    void add(long tick, Pipe pipe) {
+        if (size == ticks.length) {
+            ticks = Arrays.copyOf(ticks, size * 2);
+            pipes = Arrays.copyOf(pipes, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(tick, pipe, ticks[parent], pipes[parent])) {
+                break;
+            }
+            ticks[i] = ticks[parent];
+            pipes[i] = pipes[parent];
+            i = parent;
+        }
+        ticks[i] = tick;
+        pipes[i] = pipe;
+    }
+
+    /**
+     * removes the first event, only valid if this queue is not empty
+     */
+    void poll() {
+        size--;
+        long tick = ticks[size];
+        Pipe pipe = pipes[size];
+        pipes[size] = null;
+        if (size == 0) {
+            return;
+        }
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(ticks[child + 1], pipes[child + 1], ticks[child], pipes[child])) {
+                child++;
+            }
+            if (!less(ticks[child], pipes[child], tick, pipe)) {
+                break;
+            }
+            ticks[i] = ticks[child];
+            pipes[i] = pipes[child];
+            i = child;
+        }
+        ticks[i] = tick;
+        pipes[i] = pipe;
+    }
+
+    private static boolean less(long tickA, Pipe pipeA, long tickB, Pipe pipeB) {
+        if (tickA != tickB) {
+            return tickA < tickB;
+        }
+        return pipeA.getNetworkIndex() < pipeB.getNetworkIndex();
+    }
+
+}
@@ -0,0 +1,382 @@
+package de.robotricker.transportpipes.duct.pipe.network;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.bukkit.World;
+
+import de.robotricker.transportpipes.LoadedChunkSet;
+import de.robotricker.transportpipes.TransportPipes;
+import de.robotricker.transportpipes.config.GeneralConf;
+import de.robotricker.transportpipes.duct.manager.PipeManager;
+import de.robotricker.transportpipes.duct.pipe.Pipe;
+import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.duct.sync.SyncCommand;
+import de.robotricker.transportpipes.location.BlockLocation;
+
+/**
+ * A set of pipes which are connected with each other. Pipe items can only travel between pipes of the same network,
+ * so different networks can be ticked on different threads at the same time.
+ * <p>
+ * Only the pipes inside the active set of a network get ticked. A pipe joins it as soon as an item is put into it and
+ * leaves it again after all of its item queues are empty, so the tick cost depends on the amount of items in transit
+ * instead of the amount of pipes. Pipes with periodic work (extraction, crafting) never leave it.
+ * <p>
+ * With the {@link ItemMovementEngine#EVENT event engine}, every pipe with moving items is queued with the tick of its
+ * next item event instead, so pipes whose items are just travelling between two points of interest are not ticked at
+ * all.
+ * <p>
+ * A network whose chunks are all unloaded is dormant and not ticked at all, until one of its chunks is loaded again.
+ * <p>
+ * A network which is out of the render distance of all players is simulated with a lower level of detail (LOD): its
+ * items are moved like with the event engine, hopping from one point of interest to the next at exactly the ticks at
+ * which they would arrive there, and their positions are not sent to anyone. Containers see the same throughput as with
+ * the full simulation, which resumes as soon as a player gets near.
+ * <p>
+ * Everything a network does outside of its own pipes (moving items into pipes of other networks, inserting items into
+ * containers) is buffered during the tick and applied by the {@link PipeManager} afterwards in network order, so the
+ * outcome doesn't depend on which network finished first.
+ */
+public class PipeNetwork {
+
+    private final World world;
+    /**
+     * sorted by block location
+     */
+    private final List<Pipe> pipes;
+    private final LoadedChunkSet loadedChunks;
+    /**
+     * the keys of all chunks which contain pipes of this network
+     */
+    private final Set<Long> chunkKeys;
+    private long checkedChunkVersion;
+    private boolean dormant;
+    /**
+     * the bounds of all pipes of this network
+     */
+    private int minX, minY, minZ, maxX, maxY, maxZ;
+    /**
+     * LOD: whether this network is out of the render distance of all players
+     */
+    private boolean lod;
+    /**
+     * ROUTING: the routing table of this network, built on its first use and again after it got invalidated
+     */
+    private volatile RoutingTable routingTable;
+    private volatile int routingVersion;
+
+    /**
+     * contains the network indices of the active pipes, only accessed by the thread which ticks this network
+     */
+    private final BitSet activePipes;
+    /**
+     * THREAD-SAFE contains all the pipes that were woken up since the last tick
+     */
+    private final ConcurrentLinkedQueue<Pipe> wokenPipes;
+    /**
+     * EVENT ENGINE: the pipes with scheduled item events, only accessed by the thread which ticks this network
+     */
+    private final PipeEventQueue itemEvents;
+    /**
+     * whether this network takes part in the current tick, only accessed by the TransportPipes thread
+     */
+    private boolean ticked;
+
+    /**
+     * only accessed by the thread which ticks this network
+     */
+    private final List<Pipe> handOffPipes;
+    private final List<PipeItem> handOffItems;
+    private final List<SyncCommand> syncCommands;
+
+    PipeNetwork(World world, LoadedChunkSet loadedChunks) {
+        this.world = world;
+        this.pipes = new ArrayList<>();
+        this.loadedChunks = loadedChunks;
+        this.chunkKeys = new HashSet<>();
+        this.checkedChunkVersion = -1;
+        // starting with LOD makes the first update resume the step movement of items which were moved by events in the
+        // network this one was built from
+        this.lod = true;
+        this.activePipes = new BitSet();
+        this.wokenPipes = new ConcurrentLinkedQueue<>();
+        this.itemEvents = new PipeEventQueue();
+        this.handOffPipes = new ArrayList<>();
+        this.handOffItems = new ArrayList<>();
+        this.syncCommands = new ArrayList<>();
+    }
+
+    void addPipe(Pipe pipe) {
+        BlockLocation blockLoc = pipe.getBlockLoc();
+        if (pipes.isEmpty()) {
+            minX = maxX = blockLoc.getX();
+            minY = maxY = blockLoc.getY();
+            minZ = maxZ = blockLoc.getZ();
+        }
+        else {
+            minX = Math.min(minX, blockLoc.getX());
+            minY = Math.min(minY, blockLoc.getY());
+            minZ = Math.min(minZ, blockLoc.getZ());
+            maxX = Math.max(maxX, blockLoc.getX());
+            maxY = Math.max(maxY, blockLoc.getY());
+            maxZ = Math.max(maxZ, blockLoc.getZ());
+        }
+        pipes.add(pipe);
+        chunkKeys.add(pipe.getChunkKey());
+        pipe.joinNetwork(this, pipes.size() - 1);
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * ROUTING: THREAD-SAFE returns the up-to-date routing table of this network. Changes of the pipes and their
+     * connections create a new network anyway, so only changes of the pipe settings have to invalidate the table.
+     */
+    public RoutingTable getRoutingTable() {
+        int version = routingVersion;
+        RoutingTable routingTable = this.routingTable;
+        if (routingTable == null || routingTable.getVersion() != version) {
+            routingTable = RoutingTable.build(pipes, version);
+            this.routingTable = routingTable;
+        }
+        return routingTable;
+    }
+
+    /**
+     * ROUTING: THREAD-SAFE makes the next call of {@link #getRoutingTable()} rebuild the routing table
+     */
+    public void invalidateRouting() {
+        routingVersion++;
+    }
+
+    public List<Pipe> getPipes() {
+        return pipes;
+    }
+
+    public BlockLocation getMinBlockLoc() {
+        return pipes.get(0).getBlockLoc();
+    }
+
+    /**
+     * whether none of the chunks of this network are loaded. Only rechecked after chunks of the world were loaded or
+     * unloaded. Has to be called by the TransportPipes thread.
+     */
+    public boolean isDormant() {
+        long chunkVersion = loadedChunks.getVersion();
+        if (chunkVersion != checkedChunkVersion) {
+            checkedChunkVersion = chunkVersion;
+            dormant = true;
+            for (long chunkKey : chunkKeys) {
+                if (loadedChunks.isLoaded(chunkKey)) {
+                    dormant = false;
+                    break;
+                }
+            }
+        }
+        return dormant;
+    }
+
+    public boolean isLod() {
+        return lod;
+    }
+
+    /**
+     * LOD: switches between the full and the level of detail simulation, depending on whether one of the given viewers
+     * is near this network. Has to be called by the TransportPipes thread while no network is ticked.
+     *
+     * @param viewers     the position and view distance (x, y, z, distance) of every viewer in the world of this
+     *                    network, null if the level of detail simulation is disabled
+     * @param currentTick the tick which is about to be run
+     */
+    public void updateLod(double[] viewers, long currentTick, PipeManager pipeManager) {
+        boolean newLod = viewers != null;
+        if (viewers != null) {
+            for (int i = 0; i < viewers.length; i += 4) {
+                if (isInViewDistance(viewers[i], viewers[i + 1], viewers[i + 2], viewers[i + 3])) {
+                    newLod = false;
+                    break;
+                }
+            }
+        }
+        if (newLod == lod) {
+            return;
+        }
+        lod = newLod;
+        if (!lod && pipeManager.getItemMovementEngine() == ItemMovementEngine.STEP) {
+            // continue with the positions the items would have got with the full simulation
+            itemEvents.clear();
+            for (Pipe pipe : pipes) {
+                pipe.resumeStepMovement(currentTick);
+            }
+        }
+    }
+
+    private boolean isInViewDistance(double x, double y, double z, double distance) {
+        double dx = Math.max(0, Math.max(minX - x, x - (maxX + 1)));
+        double dy = Math.max(0, Math.max(minY - y, y - (maxY + 1)));
+        double dz = Math.max(0, Math.max(minZ - z, z - (maxZ + 1)));
+        return dx * dx + dy * dy + dz * dz <= distance * distance;
+    }
+
+    /**
+     * THREAD-SAFE queues the given pipe to be put into the active set on the next tick
+     */
+    public void wakeUp(Pipe pipe) {
+        wokenPipes.add(pipe);
+    }
+
+    /**
+     * moves all woken pipes into the active set. Has to be called by the TransportPipes thread while no network is
+     * ticked.
+     *
+     * @return whether this network has got any active pipe or any scheduled item event. With the event engine, all
+     * pipes of a network can sleep while their items wait for their events, so the network has to be ticked anyway.
+     */
+    public boolean updateActivePipes() {
+        Pipe pipe;
+        while ((pipe = wokenPipes.poll()) != null) {
+            // the pipe could have been moved to a different network in the meantime
+            if (pipe.getNetwork() == this) {
+                activePipes.set(pipe.getNetworkIndex());
+            }
+        }
+        ticked = !activePipes.isEmpty() || !itemEvents.isEmpty();
+        return ticked;
+    }
+
+    /**
+     * puts the given pipe into the active set right away, so it takes part in the post tick phase which is about to be
+     * run. Has to be called by the TransportPipes thread while no network is ticked.
+     *
+     * @return whether this network didn't take part in the current tick before
+     */
+    private boolean activate(Pipe pipe) {
+        activePipes.set(pipe.getNetworkIndex());
+        boolean activated = !ticked;
+        ticked = true;
+        return activated;
+    }
+
+    /**
+     * adds all active pipes to the given list, sorted by block location
+     */
+    public void collectActivePipes(List<Pipe> target) {
+        for (int i = activePipes.nextSetBit(0); i >= 0; i = activePipes.nextSetBit(i + 1)) {
+            target.add(pipes.get(i));
+        }
+    }
+
+    public void tick(boolean bigTick, TransportPipes transportPipes, PipeManager pipeManager, GeneralConf generalConf) {
+        for (int i = activePipes.nextSetBit(0); i >= 0; i = activePipes.nextSetBit(i + 1)) {
+            Pipe pipe = pipes.get(i);
+            if (pipe.isInLoadedChunk()) {
+                pipe.tick(bigTick, transportPipes, pipeManager, generalConf);
+            }
+        }
+    }
+
+    public void postTick(boolean bigTick, TransportPipes transportPipes, PipeManager pipeManager, GeneralConf generalConf) {
+        boolean eventEngine = lod || pipeManager.getItemMovementEngine() == ItemMovementEngine.EVENT;
+        for (int i = activePipes.nextSetBit(0); i >= 0; i = activePipes.nextSetBit(i + 1)) {
+            Pipe pipe = pipes.get(i);
+            if (pipe.isInLoadedChunk()) {
+                pipe.postTick(bigTick, transportPipes, pipeManager, generalConf);
+                if (eventEngine) {
+                    scheduleNextItemEvent(pipe);
+                }
+            }
+        }
+        if (eventEngine) {
+            processItemEvents(pipeManager.getCurrentTick(world), transportPipes, pipeManager);
+        }
+        for (int i = activePipes.nextSetBit(0); i >= 0; i = activePipes.nextSetBit(i + 1)) {
+            if (pipes.get(i).trySleep(eventEngine)) {
+                activePipes.clear(i);
+            }
+        }
+    }
+
+    /**
+     * EVENT ENGINE: runs all item events which are due in the given tick
+     */
+    private void processItemEvents(long currentTick, TransportPipes transportPipes, PipeManager pipeManager) {
+        while (!itemEvents.isEmpty() && itemEvents.peekTick() <= currentTick) {
+            long tick = itemEvents.peekTick();
+            Pipe pipe = itemEvents.peekPipe();
+            itemEvents.poll();
+            if (pipe.getNetwork() != this || pipe.getScheduledEventTick() != tick) {
+                // outdated event
+                continue;
+            }
+            pipe.setScheduledEventTick(Long.MAX_VALUE);
+            if (!pipe.isInLoadedChunk()) {
+                // the pipe gets rescheduled by the active set as soon as its chunk is loaded again
+                pipe.wakeUp();
+                continue;
+            }
+            pipe.processItemEvents(currentTick, transportPipes, pipeManager);
+            scheduleNextItemEvent(pipe);
+        }
+    }
+
+    private void scheduleNextItemEvent(Pipe pipe) {
+        long nextEventTick = pipe.getNextItemEventTick();
+        if (nextEventTick < pipe.getScheduledEventTick()) {
+            pipe.setScheduledEventTick(nextEventTick);
+            itemEvents.add(nextEventTick, pipe);
+        }
+    }
+
+    /**
+     * queues the given pipe item to be put into the given pipe as soon as all networks finished their current tick
+     * phase
+     */
+    public void handOff(Pipe pipe, PipeItem pipeItem) {
+        handOffPipes.add(pipe);
+        handOffItems.add(pipeItem);
+    }
+
+    /**
+     * puts the handed off items into their pipes and activates these pipes, so the items are handled by the post tick
+     * phase of the current tick. Has to be called by the TransportPipes thread while no network is ticked.
+     *
+     * @param activatedNetworks the networks which didn't take part in the current tick before are added to this list
+     */
+    public void applyHandOffs(List<PipeNetwork> activatedNetworks) {
+        for (int i = 0; i < handOffPipes.size(); i++) {
+            Pipe pipe = handOffPipes.get(i);
+            pipe.getItems().add(handOffItems.get(i));
+            // the usual wake up keeps the awake flag of the pipe consistent, the active set of its network is updated right
+            // away on top of that
+            pipe.wakeUp();
+            PipeNetwork network = pipe.getNetwork();
+            if (network != null && !network.isDormant() && network.activate(pipe)) {
+                activatedNetworks.add(network);
+            }
+        }
+        handOffPipes.clear();
+        handOffItems.clear();
+    }
+
+    /**
+     * queues the given command to be applied inside the bukkit thread after this tick
+     */
+    public void addSyncCommand(SyncCommand command) {
+        syncCommands.add(command);
+    }
+
+    /**
+     * moves all queued sync commands into the given list
+     */
+    public void drainSyncCommands(List<SyncCommand> target) {
+        target.addAll(syncCommands);
+        syncCommands.clear();
+    }
+
+}
@@ -0,0 +1,265 @@
+package de.robotricker.transportpipes.duct.pipe.network;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.inject.Inject;
+
+import org.bukkit.World;
+
+import de.robotricker.transportpipes.config.GeneralConf;
+import de.robotricker.transportpipes.duct.Duct;
+import de.robotricker.transportpipes.duct.manager.GlobalDuctManager;
+import de.robotricker.transportpipes.duct.pipe.Pipe;
+import de.robotricker.transportpipes.location.BlockLocation;
+
+/**
+ * Splits the pipes of every world into {@link PipeNetwork}s and runs work for these networks on the tick threads.
+ * The networks are rebuilt lazily on the next tick after a pipe was placed, removed or changed its connections. Only
+ * the networks of these pipes and of their neighbors are rebuilt, all other networks of the world are kept.
+ */
+public class PipeNetworkService {
+
+    private final GlobalDuctManager globalDuctManager;
+    private final GeneralConf generalConf;
+
+    /**
+     * only accessed by the TransportPipes thread
+     */
+    private final Map<World, List<PipeNetwork>> networks;
+    /**
+     * THREAD-SAFE contains all the pipes per world whose networks have to be rebuilt
+     */
+    private final Map<World, Queue<Pipe>> dirtyPipes;
+
+    private ForkJoinPool tickPool;
+    private boolean tickPoolCreated;
+    private ItemMovementEngine itemMovementEngine;
+
+    @Inject
+    public PipeNetworkService(GlobalDuctManager globalDuctManager, GeneralConf generalConf) {
+        this.globalDuctManager = globalDuctManager;
+        this.generalConf = generalConf;
+        this.networks = new HashMap<>();
+        this.dirtyPipes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * THREAD-SAFE marks the network of the given pipe and the networks of its neighbors as outdated. Has to be called
+     * after the pipe was registered, unregistered or changed its connections.
+     */
+    public void markDirty(Pipe pipe) {
+        dirtyPipes.computeIfAbsent(pipe.getWorld(), w -> new ConcurrentLinkedQueue<>()).add(pipe);
+    }
+
+    /**
+     * returns the networks of the given world sorted by their smallest block location and rebuilds the outdated ones.
+     * Has to be called by the TransportPipes thread.
+     */
+    public List<PipeNetwork> getNetworks(World world) {
+        List<PipeNetwork> worldNetworks = networks.get(world);
+        Queue<Pipe> dirtyQueue = dirtyPipes.get(world);
+        if (worldNetworks == null) {
+            if (dirtyQueue != null) {
+                dirtyQueue.clear();
+            }
+            worldNetworks = buildNetworks(world, collectPipes(world));
+            networks.put(world, worldNetworks);
+        } else if (dirtyQueue != null && !dirtyQueue.isEmpty()) {
+            worldNetworks = rebuildDirtyNetworks(world, worldNetworks, dirtyQueue);
+            networks.put(world, worldNetworks);
+        }
+        return worldNetworks;
+    }
+
+    /**
+     * forgets the networks of all worlds which are not inside the given set anymore
+     */
+    public void retainWorlds(Set<World> worlds) {
+        networks.keySet().retainAll(worlds);
+        dirtyPipes.keySet().retainAll(worlds);
+    }
+
+    private List<Pipe> collectPipes(World world) {
+        List<Pipe> pipes = new ArrayList<>();
+        for (Duct duct : globalDuctManager.getDucts(world).values()) {
+            if (duct instanceof Pipe pipe) {
+                pipes.add(pipe);
+            }
+        }
+        return pipes;
+    }
+
+    /**
+     * rebuilds the networks of the dirty pipes and their neighbors. A new connection between two networks marks the
+     * pipes on both sides of it, so the rebuilt pipes are only connected to each other.
+     */
+    private List<PipeNetwork> rebuildDirtyNetworks(World world, List<PipeNetwork> worldNetworks, Queue<Pipe> dirtyQueue) {
+        Map<BlockLocation, Duct> ductMap = globalDuctManager.getDucts(world);
+        Set<PipeNetwork> currentNetworks = new HashSet<>(worldNetworks);
+        Set<PipeNetwork> dirtyNetworks = new HashSet<>();
+        Set<Pipe> rebuiltPipes = new HashSet<>();
+        Pipe dirtyPipe;
+        while ((dirtyPipe = dirtyQueue.poll()) != null) {
+            if (currentNetworks.contains(dirtyPipe.getNetwork())) {
+                dirtyNetworks.add(dirtyPipe.getNetwork());
+            }
+            if (ductMap.get(dirtyPipe.getBlockLoc()) != dirtyPipe) {
+                // the pipe was removed, only its old network is rebuilt
+                continue;
+            }
+            rebuiltPipes.add(dirtyPipe);
+            for (Duct neighbor : dirtyPipe.getDuctConnections().values()) {
+                if (neighbor instanceof Pipe neighborPipe && currentNetworks.contains(neighborPipe.getNetwork())) {
+                    dirtyNetworks.add(neighborPipe.getNetwork());
+                }
+            }
+        }
+
+        List<PipeNetwork> newNetworks = new ArrayList<>(worldNetworks.size());
+        for (PipeNetwork network : worldNetworks) {
+            if (!dirtyNetworks.contains(network)) {
+                newNetworks.add(network);
+                continue;
+            }
+            for (Pipe pipe : network.getPipes()) {
+                if (ductMap.get(pipe.getBlockLoc()) == pipe) {
+                    rebuiltPipes.add(pipe);
+                }
+            }
+        }
+
+        List<Pipe> pipes = new ArrayList<>(rebuiltPipes);
+        pipes.sort(Comparator.comparing(Pipe::getBlockLoc));
+        newNetworks.addAll(buildNetworks(world, pipes));
+        newNetworks.sort(Comparator.comparing(PipeNetwork::getMinBlockLoc));
+        return newNetworks;
+    }
+
+    /**
+     * splits the given pipes into networks. The pipes have to be sorted by block location.
+     */
+    private List<PipeNetwork> buildNetworks(World world, List<Pipe> pipes) {
+        // union-find over the pipe connections. Connections are treated as undirected, so a connection which is only
+        // known to one side of it still joins both pipes.
+        Map<Pipe, Integer> indices = new HashMap<>();
+        int[] parents = new int[pipes.size()];
+        for (int i = 0; i < pipes.size(); i++) {
+            indices.put(pipes.get(i), i);
+            parents[i] = i;
+        }
+        for (int i = 0; i < pipes.size(); i++) {
+            for (Duct neighbor : pipes.get(i).getDuctConnections().values()) {
+                Integer neighborIndex = indices.get(neighbor);
+                if (neighborIndex != null) {
+                    union(parents, i, neighborIndex);
+                }
+            }
+        }
+
+        // the pipes are sorted by block location, so both the networks and the pipes inside them end up sorted, too
+        Map<Integer, PipeNetwork> networksByRoot = new HashMap<>();
+        List<PipeNetwork> worldNetworks = new ArrayList<>();
+        for (int i = 0; i < pipes.size(); i++) {
+            PipeNetwork network = networksByRoot.get(find(parents, i));
+            if (network == null) {
+                network = new PipeNetwork(world, globalDuctManager.getLoadedChunks(world));
+                networksByRoot.put(find(parents, i), network);
+                worldNetworks.add(network);
+            }
+            network.addPipe(pipes.get(i));
+        }
+        return worldNetworks;
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parents, int a, int b) {
+        int rootA = find(parents, a);
+        int rootB = find(parents, b);
+        if (rootA < rootB) {
+            parents[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parents[rootA] = rootB;
+        }
+    }
+
+    /**
+     * runs the given action for all the given networks and returns after all of them are done. If more than one tick
+     * thread is configured, the networks are processed in parallel.
+     */
+    public void forEachNetwork(List<PipeNetwork> networkList, Consumer<PipeNetwork> action) {
+        ForkJoinPool pool = getTickPool();
+        if (pool == null || networkList.size() <= 1) {
+            networkList.forEach(action);
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(networkList.size());
+        for (PipeNetwork network : networkList) {
+            tasks.add(pool.submit(() -> action.accept(network)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.join();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private ForkJoinPool getTickPool() {
+        if (!tickPoolCreated) {
+            tickPoolCreated = true;
+            int tickThreads = generalConf.getTickThreads();
+            if (tickThreads > 1) {
+                tickPool = new ForkJoinPool(tickThreads, pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("TransportPipes-Worker-" + thread.getPoolIndex());
+                    return thread;
+                }, null, false);
+            }
+        }
+        return tickPool;
+    }
+
+    /**
+     * the engine is read once, because the item state of both engines is not compatible with each other
+     */
+    public ItemMovementEngine getItemMovementEngine() {
+        if (itemMovementEngine == null) {
+            itemMovementEngine = generalConf.getItemMovementEngine();
+        }
+        return itemMovementEngine;
+    }
+
+    public void shutdown() {
+        if (tickPool != null) {
+            tickPool.shutdown();
+            try {
+                tickPool.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,227 @@
+package de.robotricker.transportpipes.duct.pipe.network;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.robotricker.transportpipes.api.TransportPipesContainer;
+import de.robotricker.transportpipes.duct.Duct;
+import de.robotricker.transportpipes.duct.pipe.Pipe;
+import de.robotricker.transportpipes.duct.pipe.filter.ItemKey;
+import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.location.TPDirection;
+
+/**
+ * ROUTING: stores for every exit of every pipe of a network which sinks an item can reach by leaving the pipe through
+ * this exit. Sinks are the containers next to the network and the pipes which consume items ({@link
+ * Pipe#isRoutingSink()}). The exits an item can take inside a pipe are given by {@link Pipe#getRoutingExits(TPDirection)},
+ * so iron pipe outputs, blocked golden pipe outputs and the fact that items don't turn around in the middle of a pipe
+ * are taken into account. Which pipes are connected at all (e.g. colored pipes) is given by the network itself.
+ * <p>
+ * Exits which only let some items through ({@link Pipe#isRoutingExitOpen(TPDirection, ItemKey)}, e.g. golden pipe
+ * outputs) gate the sinks behind them. As long as the network has got such exits, the reachable sinks are calculated
+ * per item key on the first request and cached. Whether a sink accepts an item is checked when the item asks for its
+ * way, which is cheap because containers answer free space queries from their inventory mirror.
+ * <p>
+ * Immutable after it was built apart from the THREAD-SAFE item key cache, so it can be read by any thread.
+ */
+public final class RoutingTable {
+
+    private static final int DIRECTIONS = TPDirection.values().length;
+    private static final TPDirection[] DIRECTION_VALUES = TPDirection.values();
+    private static final int MAX_CACHED_ITEM_KEYS = 256;
+
+    private final List<Pipe> pipes;
+    private final int version;
+    private final List<Sink> sinks;
+    /**
+     * the reachable sinks of every exit, indexed by network index of the pipe * 6 + ordinal of the exit direction. null
+     * if there is no such exit.
+     */
+    private final BitSet[] exitSinks;
+    /**
+     * for every exit, the exits which lead into the pipe of this exit and can continue through it. null if the table
+     * has got no gated exits, because the sinks don't depend on the item then.
+     */
+    private final List<List<Integer>> predecessors;
+    /**
+     * the sinks of every exit without propagation, only kept if the table has got gated exits
+     */
+    private final BitSet[] directExitSinks;
+    /**
+     * the reachable sinks of every exit per item key, only used if the table has got gated exits. Cleared as soon as it
+     * gets too big.
+     */
+    private final Map<ItemKey, BitSet[]> itemExitSinks;
+
+    private record Sink(TransportPipesContainer container, TPDirection insertDirection, Pipe pipe) {
+
+        boolean accepts(PipeItem pipeItem) {
+            if (container != null) {
+                return container.isInLoadedChunk() && container.spaceForItem(insertDirection, pipeItem.getItem()) > 0;
+            }
+            return pipe.acceptsRoutedItem(pipeItem);
+        }
+
+    }
+
+    private RoutingTable(List<Pipe> pipes, int version, List<Sink> sinks, BitSet[] exitSinks, List<List<Integer>> predecessors, BitSet[] directExitSinks) {
+        this.pipes = pipes;
+        this.version = version;
+        this.sinks = sinks;
+        this.exitSinks = exitSinks;
+        this.predecessors = predecessors;
+        this.directExitSinks = directExitSinks;
+        this.itemExitSinks = predecessors != null ? new ConcurrentHashMap<>() : null;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * whether the given exit of the given pipe leads to a sink which accepts the given item. Returns true if the pipe
+     * is not part of this table.
+     */
+    public boolean leadsToAcceptingSink(Pipe pipe, TPDirection dir, PipeItem pipeItem) {
+        BitSet reachableSinks = getExitSinks(pipe, dir, pipeItem);
+        if (reachableSinks == null) {
+            return true;
+        }
+        for (int i = reachableSinks.nextSetBit(0); i >= 0; i = reachableSinks.nextSetBit(i + 1)) {
+            if (sinks.get(i).accepts(pipeItem)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BitSet getExitSinks(Pipe pipe, TPDirection dir, PipeItem pipeItem) {
+        int index = pipe.getNetworkIndex();
+        if (index < 0 || index >= pipes.size() || pipes.get(index) != pipe) {
+            return null;
+        }
+        BitSet[] exitSinks = this.exitSinks;
+        if (predecessors != null) {
+            ItemKey itemKey = pipeItem.getItemKey();
+            exitSinks = itemExitSinks.get(itemKey);
+            if (exitSinks == null) {
+                exitSinks = propagate(directExitSinks, predecessors, pipes, itemKey);
+                if (itemExitSinks.size() >= MAX_CACHED_ITEM_KEYS) {
+                    itemExitSinks.clear();
+                }
+                itemExitSinks.put(itemKey, exitSinks);
+            }
+        }
+        return exitSinks[index * DIRECTIONS + dir.ordinal()];
+    }
+
+    /**
+     * builds the routing table of the given pipes, which have to be sorted by their network index
+     */
+    static RoutingTable build(List<Pipe> pipes, int version) {
+        Map<Sink, Integer> sinkIndices = new HashMap<>();
+        List<Sink> sinks = new ArrayList<>();
+        BitSet[] exitSinks = new BitSet[pipes.size() * DIRECTIONS];
+        // for every exit, the exits which lead into the pipe of this exit and can continue through it
+        List<List<Integer>> predecessors = new ArrayList<>(exitSinks.length);
+        for (int i = 0; i < exitSinks.length; i++) {
+            predecessors.add(null);
+        }
+        boolean gated = false;
+
+        for (int i = 0; i < pipes.size(); i++) {
+            Pipe pipe = pipes.get(i);
+            gated |= pipe.hasRoutingGates();
+            for (TPDirection dir : pipe.getAllConnections()) {
+                int exit = i * DIRECTIONS + dir.ordinal();
+                exitSinks[exit] = new BitSet();
+
+                TransportPipesContainer container = pipe.getContainerConnections().get(dir);
+                if (container != null) {
+                    exitSinks[exit].set(sinkIndices.computeIfAbsent(new Sink(container, dir, null), sink -> addSink(sinks, sink)));
+                    continue;
+                }
+                Duct duct = pipe.getDuctConnections().get(dir);
+                if (!(duct instanceof Pipe nextPipe) || nextPipe.getNetworkIndex() >= pipes.size() || pipes.get(nextPipe.getNetworkIndex()) != nextPipe) {
+                    continue;
+                }
+                if (nextPipe.isRoutingSink()) {
+                    exitSinks[exit].set(sinkIndices.computeIfAbsent(new Sink(null, null, nextPipe), sink -> addSink(sinks, sink)));
+                }
+                int nextExits = nextPipe.getRoutingExits(dir);
+                for (TPDirection nextDir : TPDirection.values()) {
+                    if ((nextExits & (1 << nextDir.ordinal())) != 0) {
+                        int nextExit = nextPipe.getNetworkIndex() * DIRECTIONS + nextDir.ordinal();
+                        if (predecessors.get(nextExit) == null) {
+                            predecessors.set(nextExit, new ArrayList<>());
+                        }
+                        predecessors.get(nextExit).add(exit);
+                    }
+                }
+            }
+        }
+
+        if (gated) {
+            return new RoutingTable(pipes, version, sinks, null, predecessors, exitSinks);
+        }
+        return new RoutingTable(pipes, version, sinks, propagate(exitSinks, predecessors, pipes, null), null, null);
+    }
+
+    /**
+     * propagates the sinks backwards until nothing changes anymore, loops are fine because sets only grow. The sinks
+     * of exits which are closed for the given item key are not propagated.
+     *
+     * @param directExitSinks the sinks of every exit without propagation, not modified
+     * @param itemKey         null if the table has got no gated exits
+     */
+    private static BitSet[] propagate(BitSet[] directExitSinks, List<List<Integer>> predecessors, List<Pipe> pipes, ItemKey itemKey) {
+        BitSet[] exitSinks = new BitSet[directExitSinks.length];
+        for (int exit = 0; exit < exitSinks.length; exit++) {
+            if (directExitSinks[exit] != null) {
+                exitSinks[exit] = (BitSet) directExitSinks[exit].clone();
+            }
+        }
+        Deque<Integer> queue = new ArrayDeque<>();
+        boolean[] queued = new boolean[exitSinks.length];
+        for (int exit = 0; exit < exitSinks.length; exit++) {
+            if (exitSinks[exit] != null && !exitSinks[exit].isEmpty()) {
+                queue.add(exit);
+                queued[exit] = true;
+            }
+        }
+        while (!queue.isEmpty()) {
+            int exit = queue.poll();
+            queued[exit] = false;
+            List<Integer> exitPredecessors = predecessors.get(exit);
+            if (exitPredecessors == null) {
+                continue;
+            }
+            if (itemKey != null && !pipes.get(exit / DIRECTIONS).isRoutingExitOpen(DIRECTION_VALUES[exit % DIRECTIONS], itemKey)) {
+                continue;
+            }
+            for (int predecessor : exitPredecessors) {
+                BitSet predecessorSinks = exitSinks[predecessor];
+                int cardinality = predecessorSinks.cardinality();
+                predecessorSinks.or(exitSinks[exit]);
+                if (predecessorSinks.cardinality() != cardinality && !queued[predecessor]) {
+                    queue.add(predecessor);
+                    queued[predecessor] = true;
+                }
+            }
+        }
+
+        return exitSinks;
+    }
+
+    private static int addSink(List<Sink> sinks, Sink sink) {
+        sinks.add(sink);
+        return sinks.size() - 1;
+    }
+
+}
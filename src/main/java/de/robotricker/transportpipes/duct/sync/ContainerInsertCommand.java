@@ -0,0 +1,33 @@
+package de.robotricker.transportpipes.duct.sync;
+
+import org.bukkit.World;
+
+import de.robotricker.transportpipes.api.TransportPipesContainer;
+import de.robotricker.transportpipes.duct.manager.PipeManager;
+import de.robotricker.transportpipes.duct.pipe.Pipe;
+import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.location.BlockLocation;
+
+/**
+ * inserts a pipe item which left the given pipe into the given container. The command is applied by the thread which
+ * owns the container, so an item which leaves a pipe into a container of a different region is handed off to that
+ * region explicitly.
+ */
+public record ContainerInsertCommand(Pipe pipe, PipeItem pipeItem, TransportPipesContainer container, PipeManager pipeManager) implements SyncCommand {
+
+    @Override
+    public void apply() {
+        pipe.applyContainerInsert(pipeItem, container, pipeManager);
+    }
+
+    @Override
+    public World world() {
+        return pipe.getWorld();
+    }
+
+    @Override
+    public BlockLocation blockLoc() {
+        return pipe.getBlockLoc().getNeighbor(pipeItem.getMovingDir());
+    }
+
+}
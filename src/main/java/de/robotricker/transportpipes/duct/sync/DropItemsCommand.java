@@ -0,0 +1,22 @@
+package de.robotricker.transportpipes.duct.sync;
+
+import java.util.List;
+
+import org.bukkit.World;
+import org.bukkit.inventory.ItemStack;
+
+import de.robotricker.transportpipes.location.BlockLocation;
+
+/**
+ * drops the given items at the given block location
+ */
+public record DropItemsCommand(World world, BlockLocation blockLoc, List<ItemStack> items) implements SyncCommand {
+
+    @Override
+    public void apply() {
+        for (ItemStack item : items) {
+            world.dropItem(blockLoc.toLocation(world), item);
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package de.robotricker.transportpipes.duct.sync;
+
+import org.bukkit.World;
+
+import de.robotricker.transportpipes.inventory.DuctSettingsInventory;
+import de.robotricker.transportpipes.location.BlockLocation;
+
+/**
+ * saves and repopulates the given settings inventory after its duct changed. Only one refresh per inventory is queued
+ * at a time.
+ */
+public record RefreshSettingsCommand(DuctSettingsInventory settingsInv) implements SyncCommand {
+
+    @Override
+    public void apply() {
+        settingsInv.save(null);
+        settingsInv.populate();
+    }
+
+    @Override
+    public World world() {
+        return null;
+    }
+
+    @Override
+    public BlockLocation blockLoc() {
+        return null;
+    }
+
+}
@@ -0,0 +1,34 @@
+package de.robotricker.transportpipes.duct.sync;
+
+import java.util.List;
+
+import org.bukkit.World;
+
+import de.robotricker.transportpipes.TransportPipes;
+import de.robotricker.transportpipes.duct.pipe.Pipe;
+import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.location.BlockLocation;
+import de.robotricker.transportpipes.location.TPDirection;
+
+/**
+ * chooses a new moving direction for a pipe item which could not be distributed in the middle of the given pipe and
+ * puts it back into that pipe
+ */
+public record RerouteCommand(Pipe pipe, PipeItem pipeItem, List<TPDirection> possibleMovingDirs, TransportPipes transportPipes) implements SyncCommand {
+
+    @Override
+    public void apply() {
+        pipe.applyReroute(pipeItem, possibleMovingDirs, transportPipes);
+    }
+
+    @Override
+    public World world() {
+        return pipe.getWorld();
+    }
+
+    @Override
+    public BlockLocation blockLoc() {
+        return pipe.getBlockLoc();
+    }
+
+}
@@ -0,0 +1,155 @@
+package de.robotricker.transportpipes.duct.sync;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import de.robotricker.transportpipes.ThreadService;
+import de.robotricker.transportpipes.TickRateService;
+import de.robotricker.transportpipes.config.GeneralConf;
+import de.robotricker.transportpipes.duct.manager.PipeManager;
+import de.robotricker.transportpipes.duct.pipe.Pipe;
+import de.robotricker.transportpipes.scheduler.ExecutionService;
+
+/**
+ * Runs the sync big ticks of the pipes spread over all server ticks between two big ticks, instead of running all of
+ * them inside one server tick.
+ * <p>
+ * Every pipe gets a stable phase offset derived from its block location, so it is processed at the same position of
+ * every big tick interval and the load stays flat. Every server tick only processes pipes until the configured time
+ * budget is used up, but at least one, the remaining ones are processed first on the next server tick.
+ * <p>
+ * On region threaded servers, the due pipes are handed to the threads which own their chunks instead. The budget
+ * doesn't apply there, because the regions are processed in parallel.
+ */
+public class SyncBigTickExecutor {
+
+    /**
+     * has to be a power of two and bigger than the longest big tick interval in server ticks
+     */
+    private static final int WHEEL_SIZE = 128;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int SERVER_TPS = 20;
+
+    private final ThreadService threadService;
+    private final GeneralConf generalConf;
+    private final TickRateService tickRateService;
+    private final ExecutionService executionService;
+
+    /**
+     * THREAD-SAFE contains the submitted pipes which were not put into a bucket yet
+     */
+    private final ConcurrentLinkedQueue<Submission> submissions;
+    /**
+     * only accessed by the bukkit thread, contains the pipes which are due on the server tick with the same index
+     */
+    private final ArrayDeque<Pipe>[] buckets;
+    /**
+     * only accessed by the bukkit thread, contains all due pipes which were not processed yet
+     */
+    private final ArrayDeque<Pipe> duePipes;
+
+    private volatile PipeManager pipeManager;
+    /**
+     * only accessed by the bukkit thread
+     */
+    private long serverTick;
+
+    private record Submission(List<Pipe> pipes, int spread) {
+    }
+
+    @SuppressWarnings("unchecked")
+    @Inject
+    public SyncBigTickExecutor(ExecutionService executionService, ThreadService threadService, GeneralConf generalConf, TickRateService tickRateService) {
+        this.threadService = threadService;
+        this.generalConf = generalConf;
+        this.tickRateService = tickRateService;
+        this.executionService = executionService;
+        this.submissions = new ConcurrentLinkedQueue<>();
+        this.buckets = new ArrayDeque[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.duePipes = new ArrayDeque<>();
+        this.serverTick = 0;
+        executionService.runGlobalTimer(this::runServerTick, 1L, 1L);
+    }
+
+    /**
+     * THREAD-SAFE schedules the sync big tick of the given pipes inside the next big tick interval. Pipes whose last
+     * sync big tick is still pending are skipped. The bukkit thread puts the pipes into their buckets on its next
+     * server tick, so no pipe ends up in a bucket which was already passed.
+     *
+     * @param pipes        not used by the caller anymore
+     * @param bigTickCount the amount of pipe ticks between two big ticks
+     */
+    public void submit(PipeManager pipeManager, List<Pipe> pipes, long bigTickCount) {
+        this.pipeManager = pipeManager;
+        int spread = (int) Math.max(1, Math.min(WHEEL_SIZE - 1, bigTickCount * SERVER_TPS / Math.max(1, threadService.getPreferredTPS())));
+        pipes.removeIf(pipe -> {
+            if (pipe.isSyncBigTickPending()) {
+                return true;
+            }
+            pipe.setSyncBigTickPending(true);
+            return false;
+        });
+        if (!pipes.isEmpty()) {
+            submissions.add(new Submission(pipes, spread));
+        }
+    }
+
+    private static int getPhase(Pipe pipe, int spread) {
+        int hash = pipe.getBlockLoc().hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), spread);
+    }
+
+    private void runServerTick() {
+        long tick = ++serverTick;
+        Submission submission;
+        while ((submission = submissions.poll()) != null) {
+            for (Pipe pipe : submission.pipes()) {
+                // the earliest bucket is the one of this tick
+                buckets[(int) ((tick + getPhase(pipe, submission.spread())) & WHEEL_MASK)].addLast(pipe);
+            }
+        }
+        ArrayDeque<Pipe> bucket = buckets[(int) (tick & WHEEL_MASK)];
+
+        if (executionService.isRegionized()) {
+            List<Pipe> pipes = new ArrayList<>(bucket);
+            bucket.clear();
+            executionService.executeAtLocations(pipes, Pipe::getWorld, Pipe::getBlockLoc, this::runSyncBigTick);
+            return;
+        }
+
+        duePipes.addAll(bucket);
+        bucket.clear();
+
+        // at least one pipe per server tick, so the sync big ticks never stop completely
+        long deadline = System.nanoTime() + (long) (generalConf.getSyncBigTickBudgetMillis() * TimeUnit.MILLISECONDS.toNanos(1));
+        do {
+            Pipe pipe = duePipes.pollFirst();
+            if (pipe == null) {
+                break;
+            }
+            runSyncBigTick(pipe);
+        } while (System.nanoTime() < deadline);
+    }
+
+    private void runSyncBigTick(Pipe pipe) {
+        long start = System.nanoTime();
+        pipe.setSyncBigTickPending(false);
+        try {
+            if (pipe.isInLoadedChunk()) {
+                pipe.syncBigTick(pipeManager);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        tickRateService.addCostNanos(pipe.getWorld(), System.nanoTime() - start);
+    }
+
+}
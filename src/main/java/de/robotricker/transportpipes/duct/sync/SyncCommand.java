@@ -0,0 +1,30 @@
+package de.robotricker.transportpipes.duct.sync;
+
+import org.bukkit.World;
+
+import de.robotricker.transportpipes.location.BlockLocation;
+
+/**
+ * A change to the world, to a container or to an inventory view which was produced by the TransportPipes thread and
+ * has to be applied inside the bukkit thread. Commands are queued inside the {@link SyncCommandBuffer}.
+ */
+public interface SyncCommand {
+
+    /**
+     * called inside the bukkit thread
+     */
+    void apply();
+
+    /**
+     * the world which caused this command, its main thread cost is added to the tick rate of that world. Null if it
+     * doesn't belong to a world.
+     */
+    World world();
+
+    /**
+     * the block location this command changes, the command is applied inside the thread which owns it. Null if it
+     * doesn't belong to a world.
+     */
+    BlockLocation blockLoc();
+
+}
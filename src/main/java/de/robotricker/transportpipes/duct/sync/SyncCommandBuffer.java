@@ -0,0 +1,98 @@
+package de.robotricker.transportpipes.duct.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.inject.Inject;
+
+import org.bukkit.World;
+
+import de.robotricker.transportpipes.TickRateService;
+import de.robotricker.transportpipes.inventory.DuctSettingsInventory;
+import de.robotricker.transportpipes.scheduler.ExecutionService;
+
+/**
+ * Collects the {@link SyncCommand}s of the TransportPipes thread and applies all of them once per server tick inside
+ * the bukkit thread, instead of scheduling a separate bukkit task for every change.
+ * Commands are applied in the order in which they were added. On region threaded servers, the commands are grouped by
+ * chunk and applied by the threads which own these chunks, the order is only kept within one chunk. The time spent on a command is added to the tick rate
+ * of its world.
+ */
+public class SyncCommandBuffer {
+
+    private final TickRateService tickRateService;
+    private final ExecutionService executionService;
+
+    /**
+     * THREAD-SAFE
+     */
+    private final ConcurrentLinkedQueue<SyncCommand> commands;
+    /**
+     * THREAD-SAFE contains all the settings inventories with a queued refresh
+     */
+    private final Set<DuctSettingsInventory> pendingRefreshes;
+
+    @Inject
+    public SyncCommandBuffer(ExecutionService executionService, TickRateService tickRateService) {
+        this.tickRateService = tickRateService;
+        this.executionService = executionService;
+        this.commands = new ConcurrentLinkedQueue<>();
+        this.pendingRefreshes = ConcurrentHashMap.newKeySet();
+        executionService.runGlobalTimer(this::applyCommands, 1L, 1L);
+    }
+
+    /**
+     * THREAD-SAFE
+     */
+    public void add(SyncCommand command) {
+        commands.add(command);
+    }
+
+    /**
+     * THREAD-SAFE
+     */
+    public void addAll(List<SyncCommand> commandList) {
+        commands.addAll(commandList);
+    }
+
+    /**
+     * THREAD-SAFE queues a refresh of the given settings inventory if there isn't one queued already
+     */
+    public void refreshSettings(DuctSettingsInventory settingsInv) {
+        if (settingsInv != null && pendingRefreshes.add(settingsInv)) {
+            commands.add(new RefreshSettingsCommand(settingsInv));
+        }
+    }
+
+    private void applyCommands() {
+        if (commands.isEmpty()) {
+            return;
+        }
+        List<SyncCommand> dueCommands = new ArrayList<>();
+        SyncCommand command;
+        while ((command = commands.poll()) != null) {
+            if (command instanceof RefreshSettingsCommand refreshCommand) {
+                pendingRefreshes.remove(refreshCommand.settingsInv());
+            }
+            dueCommands.add(command);
+        }
+        executionService.executeAtLocations(dueCommands, SyncCommand::world, SyncCommand::blockLoc, this::applyCommand);
+    }
+
+    private void applyCommand(SyncCommand command) {
+        long start = System.nanoTime();
+        try {
+            command.apply();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        World world = command.world();
+        if (world != null) {
+            tickRateService.addCostNanos(world, System.nanoTime() - start);
+        }
+    }
+
+}
@@ -98,7 +98,7 @@ public class CraftingPipeSettingsInventory extends DuctSettingsInventory {
         if (rawSlot == 4 * 9 + 8) {
             List<ItemStack> cachedItems = new ArrayList<>(pipe.getCachedItems());
             pipe.getCachedItems().clear();
-            transportPipes.runTaskSync(() -> {
+            transportPipes.runTaskSync(p, () -> {
                 Map<Integer, ItemStack> overflow = p.getInventory().addItem(cachedItems.toArray(new ItemStack[0]));
                 for (ItemStack overflowItem : overflow.values()) {
                     p.getWorld().dropItem(p.getLocation(), overflowItem);
@@ -160,7 +160,7 @@ public class CraftingPipeSettingsInventory extends DuctSettingsInventory {
     }
 
     private void updateResultWithDelay() {
-        Bukkit.getScheduler().runTask(transportPipes, () -> {
+        transportPipes.runTaskSync(duct.getWorld(), duct.getBlockLoc(), () -> {
             Recipe recipe = calculateRecipe();
             inv.setItem(24, recipe != null ? recipe.getResult() : null);
         });
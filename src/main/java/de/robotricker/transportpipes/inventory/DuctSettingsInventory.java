@@ -3,6 +3,7 @@ package de.robotricker.transportpipes.inventory;
 import java.util.Set;
 import javax.inject.Inject;
 
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -33,11 +34,14 @@ public abstract class DuctSettingsInventory extends GlobalInventory implements L
     }
 
     public void closeForAllPlayers(TransportPipes transportPipes){
-        transportPipes.runTaskSync(() -> {
-            for (int i = 0; i < inv.getViewers().size(); i++) {
-                inv.getViewers().get(i).closeInventory();
-            }
-        });
+        // the open inventory of a player belongs to the thread which owns the player
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            transportPipes.runTaskSync(player, () -> {
+                if (inv.equals(player.getOpenInventory().getTopInventory())) {
+                    player.closeInventory();
+                }
+            });
+        }
     }
 
     public abstract void create();
@@ -165,7 +165,7 @@ public class ExtractionPipeSettingsInventory extends DuctSettingsInventory {
         for (int i = 2; i < 8; i++) {
             ItemStack itemStack = inv.getItem(18 + i);
             if (itemService.isItemWildcardOrBarrier(itemStack)) {
-                return;
+                break;
             }
             if (itemStack != null && itemStack.getAmount() > 1) {
                 ItemStack drop = itemStack.clone();
@@ -175,6 +175,7 @@ public class ExtractionPipeSettingsInventory extends DuctSettingsInventory {
             }
             items[scrollValue + i - 2] = itemStack != null ? new ItemData(itemStack) : null;
         }
+        pipe.getItemFilter().compile();
 
     }
 }
@@ -168,6 +168,10 @@ public class GoldenPipeSettingsInventory extends DuctSettingsInventory {
                 }
             }
         }
+        for (GoldenPipe.Color gpc : GoldenPipe.Color.values()) {
+            pipe.getItemFilter(gpc).compile();
+        }
+        pipe.invalidateSortingCache();
 
     }
 }
@@ -14,6 +14,7 @@ import de.robotricker.transportpipes.duct.types.DuctType;
 import de.robotricker.transportpipes.items.ItemService;
 import de.robotricker.transportpipes.location.BlockLocation;
 import de.robotricker.transportpipes.location.TPDirection;
+import de.robotricker.transportpipes.scheduler.ExecutionService;
 import de.robotricker.transportpipes.utils.HitboxUtils;
 import de.robotricker.transportpipes.utils.ProtectionUtils.FakeBlock;
 import de.robotricker.transportpipes.utils.ProtectionUtils.ProtectionUtils;
@@ -36,20 +37,19 @@ import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
 
 import javax.inject.Inject;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DuctListener implements Listener {
 
     private final List<Material> interactables = new ArrayList<>();
 
     //makes sure that "callInteraction" is called with the mainHand and with the offHand every single time
-    private final Map<Player, Interaction> interactions = new HashMap<>();
-    private final Set<UUID> noClick = new HashSet<>();
+    private final Map<Player, Interaction> interactions = new ConcurrentHashMap<>();
+    private final Set<UUID> noClick = ConcurrentHashMap.newKeySet();
 
     private final ItemService itemService;
     private final DuctRegister ductRegister;
@@ -60,9 +60,10 @@ public class DuctListener implements Listener {
     private final ThreadService threadService;
     private final PlayerSettingsService playerSettingsService;
     private final ProtectionUtils protectionUtils;
+    private final ExecutionService executionService;
 
     @Inject
-    public DuctListener(ItemService itemService, JavaPlugin plugin, DuctRegister ductRegister, GlobalDuctManager globalDuctManager, TPContainerListener tpContainerListener, GeneralConf generalConf, TransportPipes transportPipes, ThreadService threadService, PlayerSettingsService playerSettingsService, ProtectionUtils protectionUtils) {
+    public DuctListener(ItemService itemService, ExecutionService executionService, DuctRegister ductRegister, GlobalDuctManager globalDuctManager, TPContainerListener tpContainerListener, GeneralConf generalConf, TransportPipes transportPipes, ThreadService threadService, PlayerSettingsService playerSettingsService, ProtectionUtils protectionUtils) {
         this.itemService = itemService;
         this.ductRegister = ductRegister;
         this.globalDuctManager = globalDuctManager;
@@ -72,6 +73,7 @@ public class DuctListener implements Listener {
         this.threadService = threadService;
         this.playerSettingsService = playerSettingsService;
         this.protectionUtils = protectionUtils;
+        this.executionService = executionService;
 
         for (Material m : Material.values()) {
             if (m.isInteractable()) {
@@ -79,15 +81,16 @@ public class DuctListener implements Listener {
             }
         }
 
-        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::updateInteractSet, 0L, 1L);
+        executionService.runGlobalTimer(this::updateInteractSet, 0L, 1L);
     }
 
     private void updateInteractSet() {
         Iterator<Player> events = interactions.keySet().iterator();
         while (events.hasNext()) {
             Player p = events.next();
-            if (interactions.get(p) != null)
-                callInteraction(interactions.get(p));
+            Interaction interaction = interactions.get(p);
+            if (interaction != null)
+                executionService.executeForEntity(p, () -> callInteraction(interaction));
             events.remove();
         }
     }
@@ -96,24 +99,14 @@ public class DuctListener implements Listener {
     public void onDrop(PlayerDropItemEvent event) {
         UUID uuid = event.getPlayer().getUniqueId();
         noClick.add(uuid);
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                noClick.remove(uuid);
-            }
-        }.runTaskLater(transportPipes, 2L);
+        executionService.runGlobal(() -> noClick.remove(uuid), 2L);
     }
     
     @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
     public void onEntityClick(PlayerInteractEntityEvent event) {
         UUID uuid = event.getPlayer().getUniqueId();
         noClick.add(uuid);
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                noClick.remove(uuid);
-            }
-        }.runTaskLater(transportPipes, 2L);
+        executionService.runGlobal(() -> noClick.remove(uuid), 2L);
     }
 
     @EventHandler(priority = EventPriority.LOW)
@@ -133,12 +126,7 @@ public class DuctListener implements Listener {
         }
         
         noClick.add(uuid);
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                noClick.remove(uuid);
-            }
-        }.runTaskLater(transportPipes, 3L);
+        executionService.runGlobal(() -> noClick.remove(uuid), 3L);
         
         if (e.getHand() == EquipmentSlot.HAND) {
             Interaction offHandInteraction = new Interaction(p, EquipmentSlot.OFF_HAND, p.getInventory().getItemInOffHand(), clickedBlock, e.getBlockFace(), e.getAction());
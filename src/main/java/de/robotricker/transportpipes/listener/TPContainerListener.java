@@ -1,5 +1,7 @@
 package de.robotricker.transportpipes.listener;
 
+import de.robotricker.transportpipes.LoadedChunkService;
+import de.robotricker.transportpipes.LoadedChunkSet;
 import de.robotricker.transportpipes.TransportPipes;
 import de.robotricker.transportpipes.api.ContainerUpdateEvent;
 import de.robotricker.transportpipes.api.TransportPipesContainer;
@@ -18,6 +20,7 @@ import de.robotricker.transportpipes.location.TPDirection;
 import de.robotricker.transportpipes.utils.WorldUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.block.*;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -26,7 +29,14 @@ import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockExplodeEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
+import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 
 import javax.inject.Inject;
@@ -43,6 +53,9 @@ public class TPContainerListener implements Listener {
     @Inject
     private TransportPipes transportPipes;
 
+    @Inject
+    private LoadedChunkService loadedChunkService;
+
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockPlace(BlockPlaceEvent event) {
         notifyBlockUpdate(event.getBlock(), true);
@@ -80,6 +93,80 @@ public class TPContainerListener implements Listener {
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        notifyInventoryChange(event.getInventory());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        notifyInventoryChange(event.getInventory());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryClose(InventoryCloseEvent event) {
+        notifyInventoryChange(event.getInventory());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        notifyInventoryChange(event.getSource());
+        notifyInventoryChange(event.getDestination());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryPickupItem(InventoryPickupItemEvent event) {
+        notifyInventoryChange(event.getInventory());
+    }
+
+    /**
+     * refreshes the inventory mirrors of the containers the given inventory belongs to after the current event changed
+     * the inventory
+     */
+    private void notifyInventoryChange(Inventory inventory) {
+        // getHolder() creates a block state, so it is only called for block inventories which may have got a mirror
+        if (!hasMirror(inventory.getType())) {
+            return;
+        }
+        Location location = inventory.getLocation();
+        if (location == null || location.getWorld() == null) {
+            return;
+        }
+        PipeManager pipeManager = (PipeManager) (DuctManager<? extends Duct>) ductRegister.baseDuctTypeOf("pipe").getDuctManager();
+        if (pipeManager.getContainers(location.getWorld()).isEmpty()) {
+            return;
+        }
+        InventoryHolder holder = inventory.getHolder();
+        if (holder instanceof DoubleChest doubleChest) {
+            notifyInventoryChange(doubleChest.getLeftSide());
+            notifyInventoryChange(doubleChest.getRightSide());
+        }
+        else {
+            notifyInventoryChange(holder);
+        }
+    }
+
+    /**
+     * whether inventories of the given type can belong to a {@link SimpleInventoryContainer}
+     */
+    private static boolean hasMirror(InventoryType inventoryType) {
+        return switch (inventoryType) {
+            case CHEST, BARREL, DISPENSER, DROPPER, HOPPER, SHULKER_BOX -> true;
+            default -> false;
+        };
+    }
+
+    private void notifyInventoryChange(InventoryHolder holder) {
+        if (!(holder instanceof BlockState blockState)) {
+            return;
+        }
+        PipeManager pipeManager = (PipeManager) (DuctManager<? extends Duct>) ductRegister.baseDuctTypeOf("pipe").getDuctManager();
+        if (pipeManager.getContainerAtLoc(blockState.getLocation()) instanceof SimpleInventoryContainer container && container.getMirror().requestRefresh()) {
+            // the inventory changes after the event, so the mirror is refreshed afterwards
+            transportPipes.runTaskSync(blockState.getWorld(), new BlockLocation(blockState.getLocation()), container::refreshMirror);
+        }
+    }
+
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onChunkLoad(ChunkLoadEvent event) {
         handleChunkLoadSync(event.getChunk(), false);
@@ -108,7 +195,7 @@ public class TPContainerListener implements Listener {
                 // only update the neighbor pipes if this updateContainerBlock method call is because of a chunk load that was not issued inside the onEnable method
                 doUpdateNeighborPipes(block, updateNeighborPipes, blockLoc);
 
-                transportPipes.runTaskSync(() -> {
+                transportPipes.runTaskSync(block.getWorld(), blockLoc, () -> {
                     //checks for double chest neighbor and updates the neighbors TransportPipesContainer if present
                     Block neighborDoubleChestBlock = checkForDoubleChestNeighbor(block);
                     if (neighborDoubleChestBlock != null) {
@@ -118,6 +205,10 @@ public class TPContainerListener implements Listener {
                         }
                         if (pipeManager.getContainers(block.getWorld()).get(blockLoc) == container) {
                             ((BlockContainer) container).updateBlock();
+                            // both halves share the inventory of the double chest
+                            if (container instanceof SimpleInventoryContainer simpleContainer && neighborContainer instanceof SimpleInventoryContainer simpleNeighbor) {
+                                simpleContainer.shareMirror(simpleNeighbor);
+                            }
                         }
                     }
                 });
@@ -129,6 +220,17 @@ public class TPContainerListener implements Listener {
             if (container != null) {
                 pipeManager.getContainers(block.getWorld()).remove(blockLoc);
 
+                // the other half of a double chest gets its own inventory after the block is gone
+                Block neighborDoubleChestBlock = checkForDoubleChestNeighbor(block);
+                if (neighborDoubleChestBlock != null) {
+                    BlockLocation neighborBlockLoc = new BlockLocation(neighborDoubleChestBlock.getLocation());
+                    transportPipes.runTaskSync(block.getWorld(), neighborBlockLoc, () -> {
+                        if (pipeManager.getContainerAtLoc(block.getWorld(), neighborBlockLoc) instanceof BlockContainer neighborContainer) {
+                            neighborContainer.updateBlock();
+                        }
+                    });
+                }
+
                 // only update the neighbor pipes if this updateContainerBlock method call is because of a chunk load that was not issued inside the onEnable method
                 doUpdateNeighborPipes(block, updateNeighborPipes, blockLoc);
             }
@@ -170,12 +272,13 @@ public class TPContainerListener implements Listener {
 
     public TransportPipesContainer createContainerFromBlock(Block block) {
         BlockState blockState = block.getState();
+        LoadedChunkSet loadedChunks = loadedChunkService.getLoadedChunks(block.getWorld());
         if (blockState instanceof Furnace) {
-            return new FurnaceContainer(block);
+            return new FurnaceContainer(block, loadedChunks);
         } else if (blockState instanceof BrewingStand) {
-            return new BrewingStandContainer(block);
+            return new BrewingStandContainer(block, loadedChunks);
         } else if (blockState instanceof InventoryHolder) {
-            return new SimpleInventoryContainer(block);
+            return new SimpleInventoryContainer(block, loadedChunks, transportPipes);
         }
         return null;
     }
@@ -3,9 +3,14 @@ package de.robotricker.transportpipes.listener;
 import javax.inject.Inject;
 
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.event.world.WorldSaveEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 
+import de.robotricker.transportpipes.LoadedChunkService;
 import de.robotricker.transportpipes.TransportPipes;
 
 public class WorldListener implements Listener {
@@ -13,9 +18,28 @@ public class WorldListener implements Listener {
     @Inject
     private TransportPipes plugin;
 
+    @Inject
+    private LoadedChunkService loadedChunkService;
+
     @EventHandler
     public void onWorldSave(WorldSaveEvent e) {
         plugin.saveWorld(e.getWorld());
     }
 
+    // the loaded chunks are updated before any other listener sees the chunk
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onChunkLoad(ChunkLoadEvent e) {
+        loadedChunkService.notifyChunkLoaded(e.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent e) {
+        loadedChunkService.notifyChunkUnloaded(e.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent e) {
+        loadedChunkService.notifyWorldUnloaded(e.getWorld());
+    }
+
 }
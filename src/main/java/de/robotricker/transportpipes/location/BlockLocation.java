@@ -91,6 +91,14 @@ public class BlockLocation implements Comparable<BlockLocation> {
         return Objects.hash(x, y, z);
     }
 
+    /**
+     * packs this location into a single long (26 bits x, 26 bits z, 12 bits y), which is unique for all locations
+     * inside the world border and the build height
+     */
+    public long toLong() {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
     @Override
     public String toString() {
         return x + ", " + y + ", " + z;
@@ -5,6 +5,12 @@ import java.util.Objects;
 public class RelativeLocation implements Cloneable {
 
     public static final long PRECISION = 100000;
+    /**
+     * the fixed-point values of the pipe borders and the pipe middle
+     */
+    public static final long MIN = 0;
+    public static final long HALF = PRECISION / 2;
+    public static final long MAX = PRECISION;
 
     private long x;
     private long y;
@@ -60,10 +66,34 @@ public class RelativeLocation implements Cloneable {
     }
 
     public RelativeLocation add(long x, long y, long z) {
-        set(getLongX() + x, getLongY() + y, getLongZ() + z);
+        this.x += x;
+        this.y += y;
+        this.z += z;
+        return this;
+    }
+
+    /**
+     * copies the values of the given location into this location without allocating a new one
+     */
+    public RelativeLocation copyFrom(RelativeLocation relLoc) {
+        this.x = relLoc.x;
+        this.y = relLoc.y;
+        this.z = relLoc.z;
         return this;
     }
 
+    public long getDeltaX(RelativeLocation from) {
+        return x - from.x;
+    }
+
+    public long getDeltaY(RelativeLocation from) {
+        return y - from.y;
+    }
+
+    public long getDeltaZ(RelativeLocation from) {
+        return z - from.z;
+    }
+
     public boolean isXEquals(double x) {
         return this.x == x * PRECISION;
     }
@@ -80,6 +110,24 @@ public class RelativeLocation implements Cloneable {
         return isXEquals(x) && isYEquals(y) && isZEquals(z);
     }
 
+    /**
+     * compares against fixed-point values, e.g. {@link #HALF}
+     */
+    public boolean isEquals(long x, long y, long z) {
+        return this.x == x && this.y == y && this.z == z;
+    }
+
+    public boolean isCenter() {
+        return isEquals(HALF, HALF, HALF);
+    }
+
+    /**
+     * @return whether at least one value reached a pipe border
+     */
+    public boolean isOnBorder() {
+        return x <= MIN || y <= MIN || z <= MIN || x >= MAX || y >= MAX || z >= MAX;
+    }
+
     /**
      * switches all values in the following system:<br>
      * 1: 0<br>
@@ -87,7 +135,9 @@ public class RelativeLocation implements Cloneable {
      * 0.5: 0.5
      */
     public void switchValues() {
-        set(1d - getDoubleX(), 1d - getDoubleY(), 1d - getDoubleZ());
+        x = MAX - x;
+        y = MAX - y;
+        z = MAX - z;
     }
 
     @Override
@@ -108,7 +158,7 @@ public class RelativeLocation implements Cloneable {
     @SuppressWarnings("MethodDoesntCallSuperMethod")
     @Override
     public RelativeLocation clone() {
-        return new RelativeLocation(getDoubleX(), getDoubleY(), getDoubleZ());
+        return new RelativeLocation(x, y, z);
     }
 
     @Override
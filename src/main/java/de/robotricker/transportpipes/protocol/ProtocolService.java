@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class ProtocolService {
@@ -43,7 +44,7 @@ public class ProtocolService {
         this.plugin = plugin;
     }
 
-    private int nextEntityID = 99999;
+    private final AtomicInteger nextEntityID = new AtomicInteger(99999);
 
     public void sendPipeItem(Player player, PipeItem item) {
         sendASD(player, item.getBlockLoc(), item.getRelativeLocation().clone().add(-0.5d, -0.5d, -0.5d), item.getAsd());
@@ -53,9 +54,9 @@ public class ProtocolService {
         try {
         	PacketContainer relEntityMoveContainer = protocolManager.createPacket(PacketType.Play.Server.REL_ENTITY_MOVE);
         	relEntityMoveContainer.getIntegers().write(0, item.getAsd().getEntityID());
-        	relEntityMoveContainer.getShorts().write(0, (short) ((item.getRelativeLocationDifference().getDoubleX() * 32d) * 128));
-        	relEntityMoveContainer.getShorts().write(1, (short) ((item.getRelativeLocationDifference().getDoubleY() * 32d) * 128));
-        	relEntityMoveContainer.getShorts().write(2, (short) ((item.getRelativeLocationDifference().getDoubleZ() * 32d) * 128));
+        	relEntityMoveContainer.getShorts().write(0, toPacketDelta(item.getRelativeLocationDeltaX()));
+        	relEntityMoveContainer.getShorts().write(1, toPacketDelta(item.getRelativeLocationDeltaY()));
+        	relEntityMoveContainer.getShorts().write(2, toPacketDelta(item.getRelativeLocationDeltaZ()));
         	relEntityMoveContainer.getBooleans().write(0, true);
         	protocolManager.sendServerPacket(player, relEntityMoveContainer);
         } catch (Exception e) {
@@ -63,6 +64,13 @@ public class ProtocolService {
         }
     }
 
+    /**
+     * converts a fixed-point movement into the 1/4096 block units of the relative move packet
+     */
+    private static short toPacketDelta(long delta) {
+        return (short) (delta * 4096 / RelativeLocation.PRECISION);
+    }
+
     public void removePipeItem(final Player player, PipeItem item) {
         removeASD(player, Collections.singletonList(item.getAsd()));
     }
@@ -71,7 +79,7 @@ public class ProtocolService {
 
         try {
             if (asd.getEntityID() == -1) {
-                asd.setEntityID(++nextEntityID);
+                asd.setEntityID(nextEntityID.incrementAndGet());
             }
 
             UUID uuid = UUID.randomUUID();
@@ -1,8 +1,9 @@
 package de.robotricker.transportpipes.saving;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
@@ -15,6 +16,7 @@ import de.robotricker.transportpipes.duct.types.DuctType;
 import de.robotricker.transportpipes.items.ItemService;
 import de.robotricker.transportpipes.location.BlockLocation;
 import de.robotricker.transportpipes.location.TPDirection;
+import de.robotricker.transportpipes.scheduler.ExecutionService;
 import net.querz.nbt.tag.CompoundTag;
 import net.querz.nbt.tag.ListTag;
 
@@ -26,29 +28,34 @@ public class DuctLoader {
     private DuctRegister ductRegister;
     @Inject
     private ItemService itemService;
+    @Inject
+    private ExecutionService executionService;
 
     public void loadDuctsSync(World world, CompoundTag compoundTag) {
-        ListTag<CompoundTag> listTag = compoundTag.getListTag("ducts").asCompoundTagList();
+        List<CompoundTag> ductTags = new ArrayList<>();
+        compoundTag.getListTag("ducts").asCompoundTagList().forEach(ductTags::add);
 
-        Map<Duct, CompoundTag> ductCompoundTagMap = new HashMap<>();
-        for (CompoundTag ductTag : listTag) {
+        Map<Duct, CompoundTag> ductCompoundTagMap = new ConcurrentHashMap<>();
+        // the ducts are created inside the threads which own their chunks, because getting the chunk may load it
+        executionService.executeAtLocations(ductTags, ductTag -> world, ductRegister::loadBlockLocFromNBTTag, ductTag -> {
             DuctType ductType = ductRegister.loadDuctTypeFromNBTTag(ductTag);
             BlockLocation blockLoc = ductRegister.loadBlockLocFromNBTTag(ductTag);
             List<TPDirection> blockedConnections = ductRegister.loadBlockedConnectionsFromNBTTag(ductTag); 
             if (ductType == null || blockLoc == null) {
-                continue;
+                return;
             }
             Duct duct = globalDuctManager.createDuctObject(ductType, blockLoc, world, blockLoc.toLocation(world).getChunk());
             if (blockedConnections != null) duct.getBlockedConnections().addAll(blockedConnections);
             globalDuctManager.registerDuct(duct);
             ductCompoundTagMap.put(duct, ductTag);
-        }
-        // load duct specific nbt stuff later in order to be able to access other ducts inside this load process
-        for (Duct duct : ductCompoundTagMap.keySet()) {
-            globalDuctManager.updateDuctConnections(duct);
-            duct.loadFromNBTTag(ductCompoundTagMap.get(duct), itemService);
-            globalDuctManager.registerDuctInRenderSystems(duct, false);
-        }
+        }, () -> {
+            // load duct specific nbt stuff later in order to be able to access other ducts inside this load process
+            executionService.executeAtLocations(new ArrayList<>(ductCompoundTagMap.keySet()), Duct::getWorld, Duct::getBlockLoc, duct -> {
+                globalDuctManager.updateDuctConnections(duct);
+                duct.loadFromNBTTag(ductCompoundTagMap.get(duct), itemService);
+                globalDuctManager.registerDuctInRenderSystems(duct, false);
+            });
+        });
     }
 
 }
@@ -1,8 +1,10 @@
 package de.robotricker.transportpipes.saving;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
@@ -29,6 +31,7 @@ import de.robotricker.transportpipes.items.ItemService;
 import de.robotricker.transportpipes.location.BlockLocation;
 import de.robotricker.transportpipes.location.RelativeLocation;
 import de.robotricker.transportpipes.location.TPDirection;
+import de.robotricker.transportpipes.scheduler.ExecutionService;
 import net.querz.nbt.tag.CompoundTag;
 import net.querz.nbt.tag.ListTag;
 
@@ -40,16 +43,20 @@ public class LegacyDuctLoader_v4_3_1 extends DuctLoader {
     private DuctRegister ductRegister;
     @Inject
     private ItemService itemService;
+    @Inject
+    private ExecutionService executionService;
 
     @Override
     public void loadDuctsSync(World world, CompoundTag compoundTag) {
-        ListTag<CompoundTag> listTag = compoundTag.getListTag("Ducts").asCompoundTagList();
+        List<CompoundTag> ductTags = new ArrayList<>();
+        compoundTag.getListTag("Ducts").asCompoundTagList().forEach(ductTags::add);
 
-        Map<Duct, CompoundTag> ductCompoundTagMap = new HashMap<>();
-        for (CompoundTag ductTag : listTag) {
+        Map<Duct, CompoundTag> ductCompoundTagMap = new ConcurrentHashMap<>();
+        // the ducts are created inside the threads which own their chunks, because getting the chunk may load it
+        executionService.executeAtLocations(ductTags, ductTag -> world, LegacyDuctLoader_v4_3_1::loadLegacyBlockLoc, ductTag -> {
 
             if (!ductTag.getString("DuctDetails").contains("pipe")) {
-                continue;
+                return;
             }
 
             DuctType ductType;
@@ -64,16 +71,26 @@ public class LegacyDuctLoader_v4_3_1 extends DuctLoader {
                 ductType = ductRegister.baseDuctTypeOf("pipe").ductTypeOf(pipeType);
             }
 
-            String locString = ductTag.getString("DuctLocation");
-            BlockLocation blockLoc = new BlockLocation((int) Double.parseDouble(locString.split(":")[1]), (int) Double.parseDouble(locString.split(":")[2]),
-                    (int) Double.parseDouble(locString.split(":")[3]));
+            BlockLocation blockLoc = loadLegacyBlockLoc(ductTag);
             if (ductType == null) {
-                continue;
+                return;
             }
             Duct duct = globalDuctManager.createDuctObject(ductType, blockLoc, world, blockLoc.toLocation(world).getChunk());
             globalDuctManager.registerDuct(duct);
             ductCompoundTagMap.put(duct, ductTag);
-        }
+        }, () -> loadLegacyDuctDetails(world, ductCompoundTagMap));
+    }
+
+    private static BlockLocation loadLegacyBlockLoc(CompoundTag ductTag) {
+        String locString = ductTag.getString("DuctLocation");
+        return new BlockLocation((int) Double.parseDouble(locString.split(":")[1]), (int) Double.parseDouble(locString.split(":")[2]),
+                (int) Double.parseDouble(locString.split(":")[3]));
+    }
+
+    /**
+     * the legacy duct details don't touch any blocks, so they are loaded in the thread which created the last duct
+     */
+    private void loadLegacyDuctDetails(World world, Map<Duct, CompoundTag> ductCompoundTagMap) {
         // load duct specific nbt stuff later in order to be able to access other ducts inside this load process
         for (Duct duct : ductCompoundTagMap.keySet()) {
             globalDuctManager.updateDuctConnections(duct);
@@ -112,6 +129,7 @@ public class LegacyDuctLoader_v4_3_1 extends DuctLoader {
                             }
                             i++;
                         }
+                        itemFilter.compile();
 
                         ((GoldenPipe) duct).setItemFilter(Objects.requireNonNull(GoldenPipe.Color.getByDir(TPDirection.values()[dir])), itemFilter);
                         duct.getSettingsInv().populate();
@@ -134,6 +152,7 @@ public class LegacyDuctLoader_v4_3_1 extends DuctLoader {
                         }
                         i++;
                     }
+                    itemFilter.compile();
 
                     int extractAmountInt = ductTag.getInt("ExtractAmount");
                     int extractConditionInt = ductTag.getInt("ExtractCondition");
@@ -0,0 +1,65 @@
+package de.robotricker.transportpipes.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import de.robotricker.transportpipes.location.BlockLocation;
+
+/**
+ * Runs all server work inside the bukkit main thread.
+ */
+public class BukkitExecutionBackend implements ExecutionBackend {
+
+    private final Plugin plugin;
+
+    public BukkitExecutionBackend(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(World world, BlockLocation blockLoc) {
+        return Bukkit.isPrimaryThread();
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(Entity entity) {
+        return Bukkit.isPrimaryThread();
+    }
+
+    @Override
+    public void runGlobal(Runnable task, long delay) {
+        Bukkit.getScheduler().runTaskLater(plugin, task, delay);
+    }
+
+    @Override
+    public void runGlobalTimer(Runnable task, long delay, long period) {
+        Bukkit.getScheduler().runTaskTimer(plugin, task, delay, period);
+    }
+
+    @Override
+    public void runAtLocation(World world, BlockLocation blockLoc, Runnable task, long delay) {
+        Bukkit.getScheduler().runTaskLater(plugin, task, delay);
+    }
+
+    @Override
+    public void runForEntity(Entity entity, Runnable task, long delay) {
+        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            if (entity.isValid()) {
+                task.run();
+            }
+        }, delay);
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+    }
+
+}
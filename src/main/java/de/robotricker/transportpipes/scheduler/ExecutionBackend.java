@@ -0,0 +1,54 @@
+package de.robotricker.transportpipes.scheduler;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import de.robotricker.transportpipes.location.BlockLocation;
+
+/**
+ * Decides on which server thread world, container and player work is run. On a normal server everything belongs to the
+ * bukkit main thread, on a region threaded server every chunk and entity belongs to the thread of its region and only
+ * global work is run on the global region thread.
+ * <p>
+ * All delays are in server ticks.
+ */
+public interface ExecutionBackend {
+
+    /**
+     * @return whether different regions of the worlds are owned by different threads
+     */
+    boolean isRegionized();
+
+    /**
+     * @return whether the current thread is allowed to access the chunk of the given block location
+     */
+    boolean isOwnedByCurrentThread(World world, BlockLocation blockLoc);
+
+    /**
+     * @return whether the current thread is allowed to access the given entity
+     */
+    boolean isOwnedByCurrentThread(Entity entity);
+
+    /**
+     * runs work which doesn't belong to any location, e.g. plugin wide timers
+     */
+    void runGlobal(Runnable task, long delay);
+
+    void runGlobalTimer(Runnable task, long delay, long period);
+
+    /**
+     * runs work inside the thread which owns the chunk of the given block location
+     */
+    void runAtLocation(World world, BlockLocation blockLoc, Runnable task, long delay);
+
+    /**
+     * runs work inside the thread which owns the given entity. The task is dropped if the entity is removed before.
+     */
+    void runForEntity(Entity entity, Runnable task, long delay);
+
+    /**
+     * runs work outside of all server threads
+     */
+    void runAsync(Runnable task);
+
+}
@@ -0,0 +1,153 @@
+package de.robotricker.transportpipes.scheduler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import de.robotricker.transportpipes.location.BlockLocation;
+import de.robotricker.transportpipes.log.LoggerService;
+
+/**
+ * Sends server work to the thread which owns it. The {@link ExecutionBackend} is chosen once at startup: region
+ * threaded servers get the {@link FoliaExecutionBackend}, all other servers the {@link BukkitExecutionBackend}.
+ */
+public class ExecutionService {
+
+    private final ExecutionBackend backend;
+
+    @Inject
+    public ExecutionService(JavaPlugin plugin, LoggerService logger) {
+        ExecutionBackend chosenBackend = null;
+        if (FoliaExecutionBackend.isSupported()) {
+            try {
+                chosenBackend = new FoliaExecutionBackend(plugin);
+                logger.info("Detected a region threaded server, using the region schedulers");
+            } catch (ReflectiveOperationException e) {
+                logger.error("Could not access the region schedulers, falling back to the bukkit scheduler", e);
+            }
+        }
+        this.backend = chosenBackend != null ? chosenBackend : new BukkitExecutionBackend(plugin);
+    }
+
+    public ExecutionBackend getBackend() {
+        return backend;
+    }
+
+    public boolean isRegionized() {
+        return backend.isRegionized();
+    }
+
+    public void runGlobal(Runnable task) {
+        backend.runGlobal(task, 0L);
+    }
+
+    public void runGlobal(Runnable task, long delay) {
+        backend.runGlobal(task, delay);
+    }
+
+    public void runGlobalTimer(Runnable task, long delay, long period) {
+        backend.runGlobalTimer(task, delay, period);
+    }
+
+    public void runAtLocation(World world, BlockLocation blockLoc, Runnable task) {
+        backend.runAtLocation(world, blockLoc, task, 0L);
+    }
+
+    public void runForEntity(Entity entity, Runnable task) {
+        backend.runForEntity(entity, task, 0L);
+    }
+
+    public void runForEntity(Entity entity, Runnable task, long delay) {
+        backend.runForEntity(entity, task, delay);
+    }
+
+    public void runAsync(Runnable task) {
+        backend.runAsync(task);
+    }
+
+    /**
+     * runs the given task immediately if the current thread owns the given block location, otherwise it is scheduled
+     * on the owning thread
+     */
+    public void executeAtLocation(World world, BlockLocation blockLoc, Runnable task) {
+        if (backend.isOwnedByCurrentThread(world, blockLoc)) {
+            task.run();
+        } else {
+            backend.runAtLocation(world, blockLoc, task, 0L);
+        }
+    }
+
+    /**
+     * runs the given task immediately if the current thread owns the given entity, otherwise it is scheduled on the
+     * owning thread
+     */
+    public void executeForEntity(Entity entity, Runnable task) {
+        if (backend.isOwnedByCurrentThread(entity)) {
+            task.run();
+        } else {
+            backend.runForEntity(entity, task, 0L);
+        }
+    }
+
+    /**
+     * runs the given action for all the given elements inside the threads which own their locations. The elements of
+     * one chunk are processed by a single task in list order. Elements without a world are run on the current thread.
+     */
+    public <T> void executeAtLocations(List<T> elements, Function<T, World> worldFunction, Function<T, BlockLocation> blockLocFunction, Consumer<T> action) {
+        executeAtLocations(elements, worldFunction, blockLocFunction, action, () -> {
+        });
+    }
+
+    /**
+     * runs the given action for all the given elements like {@link #executeAtLocations(List, Function, Function, Consumer)}
+     * and the given callback once the action ran for all of them, inside the thread which processed the last chunk
+     */
+    public <T> void executeAtLocations(List<T> elements, Function<T, World> worldFunction, Function<T, BlockLocation> blockLocFunction, Consumer<T> action, Runnable whenDone) {
+        if (!backend.isRegionized()) {
+            // the current thread owns every location
+            elements.forEach(action);
+            whenDone.run();
+            return;
+        }
+        Map<ChunkKey, List<T>> chunkElements = new LinkedHashMap<>();
+        for (T element : elements) {
+            World world = worldFunction.apply(element);
+            BlockLocation blockLoc = world != null ? blockLocFunction.apply(element) : null;
+            if (blockLoc == null) {
+                action.accept(element);
+                continue;
+            }
+            chunkElements.computeIfAbsent(new ChunkKey(world, blockLoc.getX() >> 4, blockLoc.getZ() >> 4), k -> new ArrayList<>()).add(element);
+        }
+        if (chunkElements.isEmpty()) {
+            whenDone.run();
+            return;
+        }
+        AtomicInteger remainingChunks = new AtomicInteger(chunkElements.size());
+        for (Map.Entry<ChunkKey, List<T>> entry : chunkElements.entrySet()) {
+            List<T> list = entry.getValue();
+            T first = list.get(0);
+            executeAtLocation(entry.getKey().world(), Objects.requireNonNull(blockLocFunction.apply(first)), () -> {
+                list.forEach(action);
+                if (remainingChunks.decrementAndGet() == 0) {
+                    whenDone.run();
+                }
+            });
+        }
+    }
+
+    private record ChunkKey(World world, int chunkX, int chunkZ) {
+    }
+
+}
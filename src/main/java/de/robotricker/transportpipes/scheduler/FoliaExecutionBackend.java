@@ -0,0 +1,133 @@
+package de.robotricker.transportpipes.scheduler;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import de.robotricker.transportpipes.location.BlockLocation;
+
+/**
+ * Runs the server work on the region, entity, global region and async schedulers of a region threaded server.
+ * <p>
+ * The schedulers are accessed via reflection, so the plugin can still be compiled against the plain bukkit api.
+ * Region threaded servers don't accept delays below 1, so such tasks are run on the next tick.
+ */
+public class FoliaExecutionBackend implements ExecutionBackend {
+
+    private static final String REGIONIZED_SERVER_CLASS = "io.papermc.paper.threadedregions.RegionizedServer";
+
+    private final Plugin plugin;
+
+    private final Object globalRegionScheduler;
+    private final Object regionScheduler;
+    private final Object asyncScheduler;
+
+    private final Method globalRunDelayed;
+    private final Method globalRunAtFixedRate;
+    private final Method regionRunDelayed;
+    private final Method entityGetScheduler;
+    private final Method entityExecute;
+    private final Method asyncRunNow;
+    private final Method isOwnedByCurrentRegionLocation;
+    private final Method isOwnedByCurrentRegionEntity;
+
+    public FoliaExecutionBackend(Plugin plugin) throws ReflectiveOperationException {
+        this.plugin = plugin;
+        Server server = Bukkit.getServer();
+
+        globalRegionScheduler = server.getClass().getMethod("getGlobalRegionScheduler").invoke(server);
+        regionScheduler = server.getClass().getMethod("getRegionScheduler").invoke(server);
+        asyncScheduler = server.getClass().getMethod("getAsyncScheduler").invoke(server);
+
+        Class<?> globalRegionSchedulerClass = Class.forName("io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler");
+        Class<?> regionSchedulerClass = Class.forName("io.papermc.paper.threadedregions.scheduler.RegionScheduler");
+        Class<?> entitySchedulerClass = Class.forName("io.papermc.paper.threadedregions.scheduler.EntityScheduler");
+        Class<?> asyncSchedulerClass = Class.forName("io.papermc.paper.threadedregions.scheduler.AsyncScheduler");
+
+        globalRunDelayed = globalRegionSchedulerClass.getMethod("runDelayed", Plugin.class, Consumer.class, long.class);
+        globalRunAtFixedRate = globalRegionSchedulerClass.getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+        regionRunDelayed = regionSchedulerClass.getMethod("runDelayed", Plugin.class, World.class, int.class, int.class, Consumer.class, long.class);
+        entityGetScheduler = Entity.class.getMethod("getScheduler");
+        entityExecute = entitySchedulerClass.getMethod("execute", Plugin.class, Runnable.class, Runnable.class, long.class);
+        asyncRunNow = asyncSchedulerClass.getMethod("runNow", Plugin.class, Consumer.class);
+        isOwnedByCurrentRegionLocation = server.getClass().getMethod("isOwnedByCurrentRegion", World.class, int.class, int.class);
+        isOwnedByCurrentRegionEntity = server.getClass().getMethod("isOwnedByCurrentRegion", Entity.class);
+    }
+
+    /**
+     * @return whether the server is region threaded
+     */
+    public static boolean isSupported() {
+        try {
+            Class.forName(REGIONIZED_SERVER_CLASS);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(World world, BlockLocation blockLoc) {
+        return (boolean) invoke(isOwnedByCurrentRegionLocation, Bukkit.getServer(), world, blockLoc.getX() >> 4, blockLoc.getZ() >> 4);
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(Entity entity) {
+        return (boolean) invoke(isOwnedByCurrentRegionEntity, Bukkit.getServer(), entity);
+    }
+
+    @Override
+    public void runGlobal(Runnable task, long delay) {
+        invoke(globalRunDelayed, globalRegionScheduler, plugin, asConsumer(task), Math.max(1, delay));
+    }
+
+    @Override
+    public void runGlobalTimer(Runnable task, long delay, long period) {
+        invoke(globalRunAtFixedRate, globalRegionScheduler, plugin, asConsumer(task), Math.max(1, delay), period);
+    }
+
+    @Override
+    public void runAtLocation(World world, BlockLocation blockLoc, Runnable task, long delay) {
+        invoke(regionRunDelayed, regionScheduler, plugin, world, blockLoc.getX() >> 4, blockLoc.getZ() >> 4, asConsumer(task), Math.max(1, delay));
+    }
+
+    @Override
+    public void runForEntity(Entity entity, Runnable task, long delay) {
+        Object entityScheduler = invoke(entityGetScheduler, entity);
+        invoke(entityExecute, entityScheduler, plugin, task, null, Math.max(1, delay));
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        invoke(asyncRunNow, asyncScheduler, plugin, asConsumer(task));
+    }
+
+    private static Consumer<Object> asConsumer(Runnable task) {
+        return scheduledTask -> task.run();
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -51,7 +51,7 @@ public class WorldEditUtils {
                         globalDuctManager.updateNeighborDuctsInRenderSystems(duct, true);
                         globalDuctManager.playDuctDestroyActions(duct, null);
 
-                        Bukkit.getScheduler().runTask(plugin, () -> {
+                        plugin.runTaskSync(BukkitAdapter.adapt(world), ductLoc, () -> {
                             DuctBreakEvent ductBreakEvent = new DuctBreakEvent(null, ductLoc);
                             Bukkit.getPluginManager().callEvent(ductBreakEvent);
                         });
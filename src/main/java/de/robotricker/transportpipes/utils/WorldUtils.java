@@ -8,6 +8,7 @@ import de.robotricker.transportpipes.config.LangConf;
 import de.robotricker.transportpipes.duct.Duct;
 import de.robotricker.transportpipes.duct.manager.GlobalDuctManager;
 import de.robotricker.transportpipes.location.BlockLocation;
+import de.robotricker.transportpipes.scheduler.ExecutionService;
 import net.md_5.bungee.api.ChatMessageType;
 import net.md_5.bungee.api.chat.TextComponent;
 import org.bukkit.Bukkit;
@@ -17,10 +18,11 @@ import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class WorldUtils {
 
-    private static final Map<Player, Integer> hidingDuctsTimers = new HashMap<>();
+    private static final Map<Player, Integer> hidingDuctsTimers = new ConcurrentHashMap<>();
 
     /**
      * THREAD-SAFE
@@ -29,7 +31,7 @@ public class WorldUtils {
         // Bukkit.getOnlinePlayers is the only thread safe playerlist getter
         List<Player> playerList = new ArrayList<>();
         for (Player p : Bukkit.getOnlinePlayers()) {
-            if (Objects.equals(p.getLocation().getWorld(), world)) {
+            if (Objects.equals(p.getWorld(), world)) {
                 playerList.add(p);
             }
         }
@@ -78,31 +80,38 @@ public class WorldUtils {
         }
 
         int duration = generalConf.getShowHiddenDuctsTime();
-        int[] task = new int[]{0};
         hidingDuctsTimers.put(player, duration);
 
-        task[0] = Bukkit.getScheduler().scheduleSyncRepeatingTask(transportPipes, () -> {
-
-            player.spigot().sendMessage(ChatMessageType.ACTION_BAR, TextComponent.fromLegacyText(LangConf.Key.SHOW_HIDDEN_DUCTS.get(hidingDuctsTimers.get(player))));
+        tickShowHiddenDuctsProcess(player, showingDucts, globalDuctManager, threadService, transportPipes);
+    }
 
-            if (hidingDuctsTimers.get(player) == 0) {
-                hidingDuctsTimers.remove(player);
-                for (Duct duct : showingDucts) {
+    /**
+     * runs one second of the show hidden ducts process and schedules the next one as global task, so the hidden ducts
+     * are restored even if the player leaves. The message and the ducts are handled inside the threads which own them.
+     */
+    private static void tickShowHiddenDuctsProcess(Player player, Set<Duct> showingDucts, GlobalDuctManager globalDuctManager, ThreadService threadService, TransportPipes transportPipes) {
+        ExecutionService executionService = transportPipes.getInjector().getSingleton(ExecutionService.class);
+        String message = LangConf.Key.SHOW_HIDDEN_DUCTS.get(hidingDuctsTimers.get(player));
+        executionService.executeForEntity(player, () -> player.spigot().sendMessage(ChatMessageType.ACTION_BAR, TextComponent.fromLegacyText(message)));
+
+        if (hidingDuctsTimers.get(player) == 0) {
+            hidingDuctsTimers.remove(player);
+            for (Duct duct : showingDucts) {
+                transportPipes.runTaskSync(duct.getWorld(), duct.getBlockLoc(), () -> {
                     if (globalDuctManager.getDuctAtLoc(duct.getWorld(), duct.getBlockLoc()) != duct) {
-                        continue;
+                        return;
                     }
                     Block ductBlock = duct.getBlockLoc().toBlock(duct.getWorld());
                     if (ductBlock.getBlockData().getMaterial() == Material.BARRIER) {
                         ductBlock.setBlockData(duct.obfuscatedWith() == null ? Material.AIR.createBlockData() : duct.obfuscatedWith(), false);
                         threadService.tickDuctSpawnAndDespawn(duct);
                     }
-                }
-                Bukkit.getScheduler().cancelTask(task[0]);
-            } else {
-                hidingDuctsTimers.put(player, hidingDuctsTimers.get(player) - 1);
+                });
             }
-        }, 0L, 20L);
-
+        } else {
+            hidingDuctsTimers.put(player, hidingDuctsTimers.get(player) - 1);
+            executionService.runGlobal(() -> tickShowHiddenDuctsProcess(player, showingDucts, globalDuctManager, threadService, transportPipes), 20L);
+        }
     }
 
 }
@@ -0,0 +1,26 @@
+package de.robotricker.transportpipes.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of this package with the GC profiler, so every result also shows the allocated bytes per
+ * operation (gc.alloc.rate.norm). The first argument is a regex which selects the benchmarks, all are run without it.
+ * <p>
+ * {@code mvn -P benchmark test-compile exec:exec -Dbenchmark=PipeItemMovement}
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BenchmarkRunner.class.getPackageName() + ".*" + (args.length > 0 ? args[0] : ""))
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,100 @@
+package de.robotricker.transportpipes.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * A stand-in for the server, which the item stacks of the Bukkit API need for their meta. Only the item factory is
+ * implemented. Its item meta only knows a display name, so copying and comparing it is cheaper than with the meta of a
+ * real server: benchmarks which copy meta are rather in favour of the code which copies more.
+ */
+final class BenchmarkServer {
+
+    private BenchmarkServer() {
+    }
+
+    /**
+     * installs the stand-in as server of {@link Bukkit}, if there is none yet
+     */
+    static synchronized void install() {
+        if (Bukkit.getServer() != null) {
+            return;
+        }
+        ItemFactory itemFactory = newProxy(ItemFactory.class, BenchmarkServer::invokeItemFactory);
+        Server server = newProxy(Server.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getItemFactory" -> itemFactory;
+            case "getLogger" -> Logger.getLogger("Benchmark");
+            case "getName", "getVersion", "getBukkitVersion" -> "Benchmark";
+            default -> invokeObjectMethod(proxy, method, args);
+        });
+        Bukkit.setServer(server);
+    }
+
+    private static Object invokeItemFactory(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "getItemMeta" -> newItemMeta(null);
+            case "isApplicable" -> true;
+            case "asMetaFor" -> ((ItemMeta) args[0]).clone();
+            case "equals" -> args.length == 2 ? Objects.equals(getDisplayName((ItemMeta) args[0]), getDisplayName((ItemMeta) args[1])) : proxy == args[0];
+            default -> invokeObjectMethod(proxy, method, args);
+        };
+    }
+
+    private static Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "Benchmark" + method.getDeclaringClass().getSimpleName();
+            default -> throw new UnsupportedOperationException(method.getName());
+        };
+    }
+
+    private static String getDisplayName(ItemMeta meta) {
+        return meta != null ? meta.getDisplayName() : null;
+    }
+
+    private static ItemMeta newItemMeta(String displayName) {
+        return newProxy(ItemMeta.class, new ItemMetaHandler(displayName));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(BenchmarkServer.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static final class ItemMetaHandler implements InvocationHandler {
+
+        private String displayName;
+
+        ItemMetaHandler(String displayName) {
+            this.displayName = displayName;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            return switch (method.getName()) {
+                case "clone" -> newItemMeta(displayName);
+                case "hasDisplayName" -> displayName != null;
+                case "getDisplayName" -> displayName;
+                case "setDisplayName" -> {
+                    displayName = (String) args[0];
+                    yield null;
+                }
+                case "hashCode" -> Objects.hashCode(displayName);
+                case "equals" -> args[0] instanceof ItemMeta other && Objects.equals(displayName, getDisplayName(other));
+                case "toString" -> "BenchmarkItemMeta{displayName=" + displayName + "}";
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+        }
+
+    }
+
+}
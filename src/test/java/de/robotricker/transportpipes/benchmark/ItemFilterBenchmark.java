@@ -0,0 +1,118 @@
+package de.robotricker.transportpipes.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.robotricker.transportpipes.duct.pipe.filter.FilterMode;
+import de.robotricker.transportpipes.duct.pipe.filter.FilterResponse;
+import de.robotricker.transportpipes.duct.pipe.filter.FilterStrictness;
+import de.robotricker.transportpipes.duct.pipe.filter.ItemData;
+import de.robotricker.transportpipes.duct.pipe.filter.ItemFilter;
+
+/**
+ * The weight of the items in the slots of a container which is scanned by an extraction pipe: an item which passes a
+ * filter row of named items, an item of the same material with another name and an item without meta whose material is
+ * not inside the filter. The comparison is the filter before it got compiled: it compared the item with every filter
+ * item, cloned the filter item for every comparison and copied the meta of both items with getItemMeta() to compare
+ * them with the item factory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ItemFilterBenchmark {
+
+    private static final Material[] FILTER_MATERIALS = {Material.STONE, Material.DIRT, Material.COBBLESTONE, Material.OAK_LOG, Material.IRON_INGOT, Material.GOLD_INGOT, Material.DIAMOND, Material.REDSTONE};
+
+    @Param({"MATERIAL", "MATERIAL_METADATA"})
+    private FilterStrictness filterStrictness;
+
+    private ItemFilter itemFilter;
+    /**
+     * the filter items of the comparison, like the former ItemData kept them
+     */
+    private ItemStack[] baselineFilterItems;
+    private ItemStack[] slotItems;
+
+    @Setup
+    public void setup() {
+        BenchmarkServer.install();
+        itemFilter = new ItemFilter();
+        ItemData[] filterItems = itemFilter.getFilterItems();
+        baselineFilterItems = new ItemStack[filterItems.length];
+        for (int i = 0; i < FILTER_MATERIALS.length; i++) {
+            ItemStack filterItem = namedItem(FILTER_MATERIALS[i], "Sorted");
+            filterItems[i] = new ItemData(filterItem);
+            baselineFilterItems[i] = filterItem.clone();
+        }
+        itemFilter.setFilterStrictness(filterStrictness);
+        slotItems = new ItemStack[]{namedItem(Material.DIAMOND, "Sorted"), namedItem(Material.DIAMOND, "Unsorted"), new ItemStack(Material.COAL, 16)};
+    }
+
+    private static ItemStack namedItem(Material material, String displayName) {
+        ItemStack item = new ItemStack(material, 16);
+        ItemMeta meta = item.getItemMeta();
+        meta.setDisplayName(displayName);
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    @Benchmark
+    public void compiledFilter(Blackhole blackhole) {
+        for (ItemStack slotItem : slotItems) {
+            blackhole.consume(itemFilter.getWeight(slotItem));
+        }
+    }
+
+    @Benchmark
+    public void filterItemLoop(Blackhole blackhole) {
+        for (ItemStack slotItem : slotItems) {
+            blackhole.consume(baselineApplyFilter(slotItem).getWeight());
+        }
+    }
+
+    /**
+     * the former ItemFilter.applyFilter(ItemStack) with filter mode NORMAL
+     */
+    private FilterResponse baselineApplyFilter(ItemStack item) {
+        if (item == null || itemFilter.getFilterMode() == FilterMode.BLOCK_ALL) {
+            return new FilterResponse(0, false);
+        }
+        int weight = 0;
+        boolean hasItems = false;
+        for (ItemStack filterItem : baselineFilterItems) {
+            if (filterItem != null) {
+                hasItems = true;
+                // the former ItemData.toItemStack()
+                if (baselineMatchesItemStrictness(filterItem.clone(), item)) {
+                    weight++;
+                }
+            }
+        }
+        return hasItems ? new FilterResponse(weight, weight > 0) : new FilterResponse(1, true);
+    }
+
+    private boolean baselineMatchesItemStrictness(ItemStack mask, ItemStack itemStack) {
+        return switch (filterStrictness) {
+            case MATERIAL -> mask.getType() == itemStack.getType();
+            case MATERIAL_METADATA -> mask.getType() == itemStack.getType() && Bukkit.getItemFactory().equals(mask.getItemMeta(), itemStack.getItemMeta());
+        };
+    }
+
+}
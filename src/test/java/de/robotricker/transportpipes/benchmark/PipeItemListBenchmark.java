@@ -0,0 +1,93 @@
+package de.robotricker.transportpipes.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.duct.pipe.items.PipeItemList;
+import de.robotricker.transportpipes.location.BlockLocation;
+import de.robotricker.transportpipes.location.TPDirection;
+
+/**
+ * The item bookkeeping of one tick of a congested pipe: all items are visited, the item at the end of the pipe is
+ * handed off to the next pipe and a new item enters the pipe. The comparison is the ConcurrentLinkedQueue which was
+ * used before the index-tracked list and was copied before every visit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PipeItemListBenchmark {
+
+    @Param({"20"})
+    private int itemCount;
+
+    private PipeItemList itemList;
+    private ConcurrentLinkedQueue<PipeItem> itemQueue;
+    private PipeItem spareListItem;
+    private PipeItem spareQueueItem;
+
+    @Setup
+    public void setup() {
+        BlockLocation blockLoc = new BlockLocation(0, 0, 0);
+        itemList = new PipeItemList();
+        itemQueue = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < itemCount; i++) {
+            itemList.add(new PipeItem(null, null, blockLoc, TPDirection.EAST));
+            itemQueue.add(new PipeItem(null, null, blockLoc, TPDirection.EAST));
+        }
+        spareListItem = new PipeItem(null, null, blockLoc, TPDirection.EAST);
+        spareQueueItem = new PipeItem(null, null, blockLoc, TPDirection.EAST);
+    }
+
+    @Benchmark
+    public void pipeItemList(Blackhole blackhole) {
+        PipeItem handedOff = null;
+        for (int i = itemList.size() - 1; i >= 0; i--) {
+            PipeItem pipeItem = itemList.get(i);
+            blackhole.consume(pipeItem.getMovingDir());
+            if (i == itemCount / 2) {
+                handedOff = pipeItem;
+                itemList.remove(pipeItem);
+            }
+        }
+        blackhole.consume(itemList.contains(handedOff));
+        itemList.add(spareListItem);
+        spareListItem = handedOff;
+        blackhole.consume(itemList.size());
+    }
+
+    @Benchmark
+    public void concurrentLinkedQueue(Blackhole blackhole) {
+        PipeItem handedOff = null;
+        List<PipeItem> copiedItems = new ArrayList<>(itemQueue);
+        for (int i = 0; i < copiedItems.size(); i++) {
+            PipeItem pipeItem = copiedItems.get(i);
+            blackhole.consume(pipeItem.getMovingDir());
+            if (i == itemCount / 2) {
+                handedOff = pipeItem;
+                itemQueue.remove(pipeItem);
+            }
+        }
+        blackhole.consume(itemQueue.contains(handedOff));
+        itemQueue.add(spareQueueItem);
+        spareQueueItem = handedOff;
+        blackhole.consume(itemQueue.size());
+    }
+
+}
@@ -0,0 +1,117 @@
+package de.robotricker.transportpipes.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.duct.pipe.items.PipeItemList;
+import de.robotricker.transportpipes.duct.pipe.items.PipeItemMergeIndex;
+import de.robotricker.transportpipes.location.BlockLocation;
+import de.robotricker.transportpipes.location.TPDirection;
+
+/**
+ * The activation of the future items of a congested pipe with merging enabled: every future item is merged with a
+ * merge index over the items of the pipe. The comparison is the scan over all items of the pipe
+ * which was used before the index. Like in a congested pipe, most of the items are full stacks already. The amounts
+ * are reset after every invocation, so every invocation merges the same.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PipeItemMergeBenchmark {
+
+    private static final Material[] MATERIALS = {Material.STONE, Material.DIRT, Material.COBBLESTONE, Material.IRON_INGOT, Material.REDSTONE};
+    private static final TPDirection[] DIRECTIONS = {TPDirection.NORTH, TPDirection.EAST};
+
+    @Param({"20", "200"})
+    private int itemCount;
+
+    @Param({"5"})
+    private int futureItemCount;
+
+    /**
+     * the amount of items at the end of the pipe which are not full yet, all other items are full stacks
+     */
+    @Param({"10"})
+    private int partialItemCount;
+
+    private PipeItemList items;
+    private PipeItem[] futureItems;
+
+    @Setup
+    public void setup() {
+        BenchmarkServer.install();
+        BlockLocation blockLoc = new BlockLocation(0, 0, 0);
+        items = new PipeItemList();
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new PipeItem(new ItemStack(MATERIALS[i % MATERIALS.length], 1), null, blockLoc, DIRECTIONS[i % DIRECTIONS.length]));
+        }
+        futureItems = new PipeItem[futureItemCount];
+        for (int i = 0; i < futureItemCount; i++) {
+            // the last material is not inside the pipe, so some future items don't find a target
+            futureItems[i] = new PipeItem(new ItemStack(MATERIALS[(i * 2) % MATERIALS.length], 1), null, blockLoc, DIRECTIONS[i % DIRECTIONS.length]);
+        }
+        for (PipeItem pipeItem : items) {
+            pipeItem.getItemKey();
+        }
+        for (PipeItem futureItem : futureItems) {
+            futureItem.getItemKey();
+        }
+        resetAmounts();
+    }
+
+    @Benchmark
+    public int mergeIndex() {
+        PipeItemMergeIndex mergeIndex = new PipeItemMergeIndex(items);
+        int merged = 0;
+        for (PipeItem futureItem : futureItems) {
+            if (mergeIndex.merge(futureItem)) {
+                merged++;
+            }
+        }
+        resetAmounts();
+        return merged;
+    }
+
+    @Benchmark
+    public int fullScan() {
+        int merged = 0;
+        outer:
+        for (PipeItem futureItem : futureItems) {
+            for (PipeItem pipeItem : items) {
+                if (pipeItem.getItem().isSimilar(futureItem.getItem()) && pipeItem.getMovingDir() == futureItem.getMovingDir() && pipeItem.getItem().getAmount() < pipeItem.getItem().getMaxStackSize()) {
+                    pipeItem.getItem().setAmount(pipeItem.getItem().getAmount() + futureItem.getItem().getAmount());
+                    merged++;
+                    continue outer;
+                }
+            }
+        }
+        resetAmounts();
+        return merged;
+    }
+
+    private void resetAmounts() {
+        int i = 0;
+        for (PipeItem pipeItem : items) {
+            pipeItem.getItem().setAmount(i++ < itemCount - partialItemCount ? pipeItem.getItem().getMaxStackSize() : 1);
+        }
+        for (PipeItem futureItem : futureItems) {
+            futureItem.getItem().setAmount(1);
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package de.robotricker.transportpipes.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.location.BlockLocation;
+import de.robotricker.transportpipes.location.RelativeLocation;
+import de.robotricker.transportpipes.location.TPDirection;
+
+/**
+ * One tick of the step engine for the items of a pipe: every item is moved, its movement since the last tick is read
+ * like the relative move packet does it and its old location is reset. Items which reach the end of the pipe start at
+ * the beginning again, like after the hand-off to the next pipe. The movement path should not allocate anything.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PipeItemMovementBenchmark {
+
+    @Param({"20"})
+    private int itemCount;
+
+    private PipeItem[] items;
+    private long factor;
+
+    @Setup
+    public void setup() {
+        items = new PipeItem[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            TPDirection movingDir = TPDirection.values()[i % TPDirection.values().length];
+            items[i] = new PipeItem(null, null, new BlockLocation(0, 0, 0), movingDir);
+        }
+        factor = (long) (0.125 * RelativeLocation.PRECISION);
+    }
+
+    @Benchmark
+    public void moveItems(Blackhole blackhole) {
+        for (PipeItem pipeItem : items) {
+            TPDirection movingDir = pipeItem.getMovingDir();
+            pipeItem.getRelativeLocation().add(movingDir.getX() * factor, movingDir.getY() * factor, movingDir.getZ() * factor);
+            blackhole.consume(pipeItem.getRelativeLocationDeltaX());
+            blackhole.consume(pipeItem.getRelativeLocationDeltaY());
+            blackhole.consume(pipeItem.getRelativeLocationDeltaZ());
+            pipeItem.resetOldRelativeLocation();
+            RelativeLocation relLoc = pipeItem.getRelativeLocation();
+            if (relLoc.isOnBorder()) {
+                relLoc.switchValues();
+                pipeItem.resetOldRelativeLocation();
+            }
+        }
+    }
+
+}
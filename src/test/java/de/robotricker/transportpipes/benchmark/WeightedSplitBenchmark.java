@@ -0,0 +1,236 @@
+package de.robotricker.transportpipes.benchmark;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.objenesis.ObjenesisStd;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.robotricker.transportpipes.LoadedChunkService;
+import de.robotricker.transportpipes.api.TransportPipesContainer;
+import de.robotricker.transportpipes.config.GeneralConf;
+import de.robotricker.transportpipes.duct.Duct;
+import de.robotricker.transportpipes.duct.DuctRegister;
+import de.robotricker.transportpipes.duct.manager.DuctManager;
+import de.robotricker.transportpipes.duct.manager.GlobalDuctManager;
+import de.robotricker.transportpipes.duct.manager.PipeManager;
+import de.robotricker.transportpipes.duct.pipe.CraftingPipe;
+import de.robotricker.transportpipes.duct.pipe.Pipe;
+import de.robotricker.transportpipes.duct.pipe.extractionpipe.ExtractMode;
+import de.robotricker.transportpipes.duct.pipe.filter.ItemData;
+import de.robotricker.transportpipes.duct.pipe.filter.ItemDistributorService;
+import de.robotricker.transportpipes.duct.pipe.items.PipeItem;
+import de.robotricker.transportpipes.duct.types.BaseDuctType;
+import de.robotricker.transportpipes.location.BlockLocation;
+import de.robotricker.transportpipes.location.TPDirection;
+
+/**
+ * The split of an item stack at a junction with three exits through ItemDistributorService.splitPipeItem, with the
+ * services around it set up without a server: the pipe manager, the global duct manager and the duct register are the
+ * real ones, the config has got routing tables enabled. Every invocation splits a new item, so the round-robin of
+ * the pipe moves on every time.
+ * <p>
+ * The comparison is a copy of the former splitPipeItem, which reduced the weights with BigInteger.gcd, expanded them
+ * into a list with one entry per weight unit and counted the items into a HashMap. It kept the position of the
+ * round-robin per pipe in a HashMap of the service, and its callers built a new weights map for every split.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WeightedSplitBenchmark {
+
+    private static final int AMOUNT = 7;
+
+    private ItemDistributorService itemDistributor;
+    private DuctRegister ductRegister;
+    private GlobalDuctManager globalDuctManager;
+    private World world;
+    private Pipe pipe;
+    private Map<TPDirection, Integer> absWeights;
+    private Map<Pipe, Integer> baselineDistributionCounter;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        BenchmarkServer.install();
+        world = mock(World.class, withSettings().stubOnly());
+        GeneralConf generalConf = new ObjenesisStd().newInstance(BenchmarkConf.class);
+        globalDuctManager = new GlobalDuctManager(null, null, null, null, null, new LoadedChunkService());
+        ductRegister = new DuctRegister(null, generalConf);
+        PipeManager pipeManager = new PipeManager(null, ductRegister, globalDuctManager, null, null, null, generalConf, null, null, null, null);
+        ductRegister.baseDuctTypes().add(new BaseDuctType<>("Pipe", pipeManager, null, null));
+
+        itemDistributor = new ItemDistributorService();
+        inject(itemDistributor, "ductRegister", ductRegister);
+        inject(itemDistributor, "globalDuctManager", globalDuctManager);
+        inject(itemDistributor, "generalConf", generalConf);
+
+        pipe = new Pipe(null, new BlockLocation(0, 64, 0), world, mock(Chunk.class, withSettings().stubOnly()), null, globalDuctManager, itemDistributor);
+        absWeights = new EnumMap<>(TPDirection.class);
+        absWeights.put(TPDirection.NORTH, 2);
+        absWeights.put(TPDirection.EAST, 1);
+        absWeights.put(TPDirection.UP, 1);
+        baselineDistributionCounter = new HashMap<>();
+    }
+
+    /**
+     * The config without its file. It is created without calling its constructor, because a mock of it would add the
+     * cost of a mock invocation to every split.
+     */
+    private static class BenchmarkConf extends GeneralConf {
+
+        BenchmarkConf() {
+            super(null);
+        }
+
+        @Override
+        public boolean isRoutingTablesEnabled() {
+            return true;
+        }
+
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private PipeItem newPipeItem() {
+        return new PipeItem(new ItemStack(Material.STONE, AMOUNT), world, pipe.getBlockLoc(), TPDirection.SOUTH);
+    }
+
+    @Benchmark
+    public Map<TPDirection, Integer> splitPipeItem() {
+        return itemDistributor.splitPipeItem(newPipeItem(), absWeights, pipe);
+    }
+
+    @Benchmark
+    public Map<TPDirection, Integer> weightListSplit() {
+        return baselineSplitPipeItem(newPipeItem(), new HashMap<>(absWeights), pipe, null);
+    }
+
+    /**
+     * the former ItemDistributorService.splitPipeItem
+     */
+    private Map<TPDirection, Integer> baselineSplitPipeItem(PipeItem pipeItem, Map<TPDirection, Integer> absWeights, Pipe pipe, Map<TPDirection, Integer> origWeights) {
+        ItemStack item = pipeItem.getItem();
+        Map<TPDirection, Integer> splitMap = new HashMap<>();
+        Map<TPDirection, Integer> freeSpaceMap = baselineCalculateFreeSpaceForAllDirections(item, absWeights.keySet(), pipe);
+
+        baselineReduceAbsWeights(absWeights);
+
+        List<TPDirection> weightsDirectionList = new ArrayList<>();
+        for (TPDirection dir : absWeights.keySet()) {
+            int absWeight = absWeights.get(dir);
+            for (int i = 1; i <= absWeight; i++) {
+                if (freeSpaceMap.get(dir) >= i) {
+                    weightsDirectionList.add(dir);
+                }
+            }
+        }
+
+        if (weightsDirectionList.isEmpty()) {
+            if (origWeights != null) {
+                return baselineSplitPipeItem(pipeItem, origWeights, pipe, null);
+            }
+            else {
+                return splitMap;
+            }
+        }
+
+        int distributionCounter = baselineDistributionCounter.getOrDefault(pipe, 0);
+
+        if (pipeItem.getExtractMode() == ExtractMode.DIRECT) {
+            splitMap.put(weightsDirectionList.get(0), item.getAmount());
+        }
+        else {
+            for (int i = 0; i < item.getAmount(); i++) {
+                distributionCounter %= weightsDirectionList.size();
+
+                TPDirection outputDir = weightsDirectionList.get(distributionCounter);
+                if (splitMap.containsKey(outputDir)) {
+                    splitMap.put(outputDir, splitMap.get(outputDir) + 1);
+                } else {
+                    splitMap.put(outputDir, 1);
+                }
+
+                distributionCounter++;
+            }
+        }
+
+        if (!pipeItem.hasVisitedPipe(pipe.getBlockLoc())) {
+            baselineDistributionCounter.put(pipe, distributionCounter);
+            pipeItem.addVisitedPipe(pipe.getBlockLoc());
+        }
+
+        return splitMap;
+    }
+
+    private void baselineReduceAbsWeights(Map<TPDirection, Integer> absWeights) {
+        BigInteger gcd = null;
+        for (TPDirection dir : absWeights.keySet()) {
+            if (absWeights.get(dir) == 0) {
+                continue;
+            }
+            if (gcd == null) {
+                gcd = BigInteger.valueOf(absWeights.get(dir));
+            } else {
+                gcd = BigInteger.valueOf(absWeights.get(dir)).gcd(gcd);
+            }
+        }
+        for (TPDirection dir : absWeights.keySet()) {
+            if (absWeights.get(dir) == 0) {
+                continue;
+            }
+            absWeights.put(dir, absWeights.get(dir) / Objects.requireNonNull(gcd).intValue());
+        }
+    }
+
+    private Map<TPDirection, Integer> baselineCalculateFreeSpaceForAllDirections(ItemStack item, Collection<TPDirection> dirs, Pipe pipe) {
+        Map<TPDirection, Integer> freeSpaceMap = new HashMap<>();
+
+        Map<BlockLocation, TransportPipesContainer> containerMap = ((PipeManager) (DuctManager<? extends Duct>) ductRegister.baseDuctTypeOf("pipe").getDuctManager()).getContainers(pipe.getWorld());
+        Map<BlockLocation, Duct> ductMap = globalDuctManager.getDucts(pipe.getWorld());
+
+        for (TPDirection dir : dirs) {
+            freeSpaceMap.put(dir, Integer.MAX_VALUE);
+            BlockLocation bl = pipe.getBlockLoc().getNeighbor(dir);
+            if (containerMap != null && containerMap.containsKey(bl)) {
+                TransportPipesContainer container = containerMap.get(bl);
+                int freeSpace = container.spaceForItem(dir, item);
+                freeSpaceMap.put(dir, freeSpace);
+            } else if (ductMap != null && ductMap.containsKey(bl) && ductMap.get(bl) instanceof CraftingPipe cp) {
+                int freeSpace = cp.spaceForItem(new ItemData(item).getItemKey());
+                freeSpaceMap.put(dir, freeSpace);
+            }
+        }
+
+        return freeSpaceMap;
+    }
+
+}
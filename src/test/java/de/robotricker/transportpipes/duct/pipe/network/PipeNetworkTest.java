@@ -0,0 +1,117 @@
+package de.robotricker.transportpipes.duct.pipe.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.robotricker.transportpipes.TransportPipes;
+import de.robotricker.transportpipes.config.GeneralConf;
+import de.robotricker.transportpipes.duct.Duct;
+import de.robotricker.transportpipes.duct.manager.DuctManager;
+import de.robotricker.transportpipes.duct.manager.GlobalDuctManager;
+import de.robotricker.transportpipes.duct.manager.PipeManager;
+import de.robotricker.transportpipes.duct.pipe.Pipe;
+import de.robotricker.transportpipes.location.BlockLocation;
+
+/**
+ * The ticking of a network the way the PipeManager does it, with the event engine. The network has got no extraction
+ * pipe, so nothing keeps it awake but the items inside its pipes.
+ */
+public class PipeNetworkTest {
+
+    private static final long EVENT_TICK = 5;
+
+    private PipeManager pipeManager;
+    private long currentTick;
+
+    @BeforeEach
+    public void setup() {
+        pipeManager = mock(PipeManager.class);
+        when(pipeManager.getItemMovementEngine()).thenReturn(ItemMovementEngine.EVENT);
+        when(pipeManager.getCurrentTick(any())).thenAnswer(invocation -> currentTick);
+        currentTick = 0;
+    }
+
+    @Test
+    public void itemEventsRunWhileAllPipesSleep() {
+        World world = mock(World.class);
+        PipeNetwork network = new PipeNetwork(world, null);
+        EventPipe pipe = new EventPipe(world);
+        network.addPipe(pipe);
+        pipe.wakeUp();
+
+        // the pipe schedules the event of its item and falls asleep
+        assertTrue(tick(network));
+        assertFalse(pipe.isAwake());
+
+        while (currentTick < EVENT_TICK) {
+            currentTick++;
+            assertTrue(tick(network), "network without active pipes skipped in tick " + currentTick);
+        }
+        assertEquals(EVENT_TICK, pipe.processedEventTick);
+
+        // nothing is left to do after the event
+        currentTick++;
+        assertFalse(tick(network));
+    }
+
+    /**
+     * @return whether the network was ticked
+     */
+    private boolean tick(PipeNetwork network) {
+        if (!network.updateActivePipes()) {
+            return false;
+        }
+        network.tick(false, null, pipeManager, null);
+        network.postTick(false, null, pipeManager, null);
+        return true;
+    }
+
+    /**
+     * A pipe with a single item which reaches its next point of interest in the event tick. The movement of the item
+     * itself is left out, the pipe only remembers when its event was processed.
+     */
+    private static class EventPipe extends Pipe {
+
+        private long nextEventTick = EVENT_TICK;
+        private long processedEventTick = -1;
+
+        EventPipe(World world) {
+            super(null, new BlockLocation(0, 64, 0), world, mock(Chunk.class), null, mock(GlobalDuctManager.class), null);
+        }
+
+        @Override
+        public boolean isInLoadedChunk() {
+            return true;
+        }
+
+        @Override
+        public void tick(boolean bigTick, TransportPipes transportPipes, DuctManager<? extends Duct> ductManager, GeneralConf generalConf) {
+        }
+
+        @Override
+        public void postTick(boolean bigTick, TransportPipes transportPipes, DuctManager<? extends Duct> ductManager, GeneralConf generalConf) {
+        }
+
+        @Override
+        public long getNextItemEventTick() {
+            return nextEventTick;
+        }
+
+        @Override
+        public void processItemEvents(long currentTick, TransportPipes transportPipes, PipeManager pipeManager) {
+            processedEventTick = currentTick;
+            nextEventTick = Long.MAX_VALUE;
+        }
+
+    }
+
+}